@@ -1,10 +1,133 @@
 import bankpackage.*;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class Main {
-    public static void main(String[] args) {
-        Bank bank = new Bank();
+    public static void main(String[] args) throws IOException {
+        // Pass --data <directory> to keep the bank on disk between runs, and --batch <file> to replay
+        // a command file (see BatchProcessor) instead of starting the interactive menu. In batch mode
+        // --audit <file> records every operation outcome to a file instead of discarding it.
+        // --serve <port> exposes the bank over the network (see BankServer) once any batch has run. It
+        // listens on the loopback interface unless --bind <address> names another one.
+        // --history <directory> moves older transaction history into memory-mapped segment files.
+        // --metrics <name> records operation counts and latencies, published over JMX under that name.
+        // --image <file> starts from a BankImage (customers are built as they are first used) when no
+        // --data directory is given, and --export-image <file> writes one after a batch has run.
+        // --statements <directory> writes every customer's statement there (after any batch) and exits.
+        String dataDirectory = null;
+        String batchFile = null;
+        String auditFile = null;
+        String servePort = null;
+        String bindAddress = null;
+        String historyDirectory = null;
+        String metricsName = null;
+        String imageFile = null;
+        String exportImageFile = null;
+        String statementsDirectory = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--data")) {
+                dataDirectory = args[i + 1];
+            } else if (args[i].equals("--batch")) {
+                batchFile = args[i + 1];
+            } else if (args[i].equals("--audit")) {
+                auditFile = args[i + 1];
+            } else if (args[i].equals("--serve")) {
+                servePort = args[i + 1];
+            } else if (args[i].equals("--bind")) {
+                bindAddress = args[i + 1];
+            } else if (args[i].equals("--history")) {
+                historyDirectory = args[i + 1];
+            } else if (args[i].equals("--metrics")) {
+                metricsName = args[i + 1];
+            } else if (args[i].equals("--image")) {
+                imageFile = args[i + 1];
+            } else if (args[i].equals("--export-image")) {
+                exportImageFile = args[i + 1];
+            } else if (args[i].equals("--statements")) {
+                statementsDirectory = args[i + 1];
+            }
+        }
+
+        BankStore store = null;
+        Bank bank;
+        if (dataDirectory != null) {
+            store = BankStore.open(Paths.get(dataDirectory));
+            bank = store.getBank();
+            System.out.println("Recovered " + bank.getCustomers().size() + " customers from " + dataDirectory
+                    + " in " + store.getRecoveryMillis() + " ms (" + store.getReplayedRecords() + " journal records replayed).");
+        } else if (imageFile != null) {
+            long start = System.nanoTime();
+            bank = BankImage.load(Paths.get(imageFile));
+            System.out.println("Mapped " + bank.getAggregates().getAccountCount() + " accounts from " + imageFile
+                    + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        } else {
+            bank = new Bank();
+        }
+        if (historyDirectory != null) {
+            bank.setHistoryArchive(HistoryArchive.open(Paths.get(historyDirectory)));
+        }
+        if (metricsName != null) {
+            BankMetrics metrics = new BankMetrics();
+            try {
+                metrics.registerMBean(metricsName);
+            } catch (JMException e) {
+                System.out.println("Could not publish metrics over JMX: " + e.getMessage());
+            }
+            bank.setMetrics(metrics);
+        }
+
+        if (batchFile != null) {
+            EventSink events = auditFile != null ? new FileEventSink(Paths.get(auditFile)) : EventSink.NO_OP;
+            bank.setEventSink(events);
+            BatchSummary summary = new BatchProcessor(bank).process(Paths.get(batchFile));
+            events.close();
+            System.out.print(summary);
+            if (bank.getMetrics() != null) {
+                System.out.print(bank.getMetrics());
+            }
+            if (exportImageFile != null) {
+                BankImage.write(bank, Paths.get(exportImageFile));
+                System.out.println("Wrote bank image to " + exportImageFile + ".");
+            }
+        }
+
+        if (statementsDirectory != null) {
+            System.out.println(new StatementJob(bank, Paths.get(statementsDirectory)).run());
+        }
+
+        if ((batchFile != null || statementsDirectory != null) && servePort == null) {
+            if (store != null) {
+                store.close();
+            }
+            return;
+        }
+
+        if (servePort != null) {
+            bank.setEventSink(EventSink.NO_OP);
+            InetAddress address = bindAddress != null ? InetAddress.getByName(bindAddress)
+                    : InetAddress.getLoopbackAddress();
+            BankServer server = new BankServer(bank, address, Integer.parseInt(servePort));
+            BankStore servedStore = store;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                    if (servedStore != null) {
+                        servedStore.close();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Shutdown failed: " + e.getMessage());
+                }
+            }));
+            server.start();
+            System.out.println("Serving on port " + server.getPort() + ". Press Ctrl+C to stop.");
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("\nWelcome to the Banking System Simulator!");
@@ -32,8 +155,12 @@ public class Main {
                 case 1:
                     // Add Customer
                     Customer customer = Customer.createCustomer();
-                    bank.addCustomer(customer);
-                    System.out.println("Customer added successfully.");
+                    try {
+                        bank.addCustomer(customer);
+                        System.out.println("Customer added successfully.");
+                    } catch (IllegalArgumentException e) {
+                        System.out.println(e.getMessage() + ".");
+                    }
                     break;
 
                 case 2:
@@ -48,18 +175,24 @@ public class Main {
                             System.out.print("Enter Account Number: ");
                             long accountNumber = scanner.nextLong();
                             System.out.print("Enter Interest Rate: ");
-                            double interestRate = scanner.nextDouble();
+                            BigDecimal interestRate = new BigDecimal(scanner.next());
                             SavingsAccount savingsAccount = new SavingsAccount(accountNumber, interestRate);
-                            foundCustomer.addAccount(savingsAccount);
-                            System.out.println("Savings Account added successfully.");
+                            if (foundCustomer.addAccount(savingsAccount)) {
+                                System.out.println("Savings Account added successfully.");
+                            } else {
+                                System.out.println("Account number already in use.");
+                            }
                         } else if (accountType.equalsIgnoreCase("Current")) {
                             System.out.print("Enter Account Number: ");
                             long accountNumber = scanner.nextLong();
                             System.out.print("Enter Overdraft Limit: ");
-                            double overdraftLimit = scanner.nextDouble();
+                            long overdraftLimit = Money.parse(scanner.next());
                             CurrentAccount currentAccount = new CurrentAccount(accountNumber, overdraftLimit);
-                            foundCustomer.addAccount(currentAccount);
-                            System.out.println("Current Account added successfully.");
+                            if (foundCustomer.addAccount(currentAccount)) {
+                                System.out.println("Current Account added successfully.");
+                            } else {
+                                System.out.println("Account number already in use.");
+                            }
                         } else {
                             System.out.println("Invalid account type.");
                         }
@@ -78,21 +211,16 @@ public class Main {
                         System.out.print("Enter Account Number: ");
                         long depositAccountNumber = scanner.nextLong();
                         scanner.nextLine(); // Consume newline
-                        Account depositAccount = null;
-
-                        for (Account account : depositCustomer.getAccounts()) {
-                            if (account.getAccountNumber() == depositAccountNumber) {
-                                depositAccount = account;
-                                break;
-                            }
+                        Account depositAccount = bank.findAccount(depositAccountNumber);
+                        if (depositAccount != null && depositAccount.getOwner() != depositCustomer) {
+                            depositAccount = null;
                         }
 
                         if (depositAccount != null) {
                             System.out.print("Enter Deposit Amount: ₹");
-                            double depositAmount = scanner.nextDouble();
+                            long depositAmount = Money.parse(scanner.next());
                             scanner.nextLine(); // Consume newline
                             depositAccount.deposit(depositAmount);
-                            System.out.println("Deposit successful.");
                         } else {
                             System.out.println("Account not found.");
                         }
@@ -111,18 +239,14 @@ public class Main {
                         System.out.print("Enter Account Number: ");
                         long withdrawAccountNumber = scanner.nextLong();
                         scanner.nextLine(); // Consume newline
-                        Account withdrawAccount = null;
-
-                        for (Account account : withdrawCustomer.getAccounts()) {
-                            if (account.getAccountNumber() == withdrawAccountNumber) {
-                                withdrawAccount = account;
-                                break;
-                            }
+                        Account withdrawAccount = bank.findAccount(withdrawAccountNumber);
+                        if (withdrawAccount != null && withdrawAccount.getOwner() != withdrawCustomer) {
+                            withdrawAccount = null;
                         }
 
                         if (withdrawAccount != null) {
                             System.out.print("Enter Withdrawal Amount: ₹");
-                            double withdrawAmount = scanner.nextDouble();
+                            long withdrawAmount = Money.parse(scanner.next());
                             scanner.nextLine(); // Consume newline
                             withdrawAccount.withdraw(withdrawAmount);
                         } else {
@@ -143,13 +267,9 @@ public class Main {
                         System.out.print("Enter Account Number (Source): ");
                         long sourceAccountNumber = scanner.nextLong();
                         scanner.nextLine(); // Consume newline
-                        Account sourceAccount = null;
-
-                        for (Account account : sourceCustomer.getAccounts()) {
-                            if (account.getAccountNumber() == sourceAccountNumber) {
-                                sourceAccount = account;
-                                break;
-                            }
+                        Account sourceAccount = bank.findAccount(sourceAccountNumber);
+                        if (sourceAccount != null && sourceAccount.getOwner() != sourceCustomer) {
+                            sourceAccount = null;
                         }
 
                         if (sourceAccount != null) {
@@ -162,18 +282,14 @@ public class Main {
                                 System.out.print("Enter Account Number (Target): ");
                                 long targetAccountNumber = scanner.nextLong();
                                 scanner.nextLine(); // Consume newline
-                                Account targetAccount = null;
-
-                                for (Account account : targetCustomer.getAccounts()) {
-                                    if (account.getAccountNumber() == targetAccountNumber) {
-                                        targetAccount = account;
-                                        break;
-                                    }
+                                Account targetAccount = bank.findAccount(targetAccountNumber);
+                                if (targetAccount != null && targetAccount.getOwner() != targetCustomer) {
+                                    targetAccount = null;
                                 }
 
                                 if (targetAccount != null) {
                                     System.out.print("Enter Transfer Amount: ₹");
-                                    double transferAmount = scanner.nextDouble();
+                                    long transferAmount = Money.parse(scanner.next());
                                     scanner.nextLine(); // Consume newline
                                     sourceAccount.transferFunds(targetAccount, transferAmount);
                                 } else {
@@ -201,12 +317,9 @@ public class Main {
                         long interestAccountNumber = scanner.nextLong();
                         scanner.nextLine(); // Consume newline
                         SavingsAccount interestAccount = null;
-
-                        for (Account account : interestCustomer.getAccounts()) {
-                            if (account.getAccountNumber() == interestAccountNumber && account instanceof SavingsAccount) {
-                                interestAccount = (SavingsAccount) account;
-                                break;
-                            }
+                        Account account = bank.findAccount(interestAccountNumber);
+                        if (account instanceof SavingsAccount && account.getOwner() == interestCustomer) {
+                            interestAccount = (SavingsAccount) account;
                         }
 
                         if (interestAccount != null) {
@@ -227,10 +340,14 @@ public class Main {
                         System.out.println("Accounts:");
                         for (Account account : cust.getAccounts()) {
                             System.out.println("Account Number: " + account.getAccountNumber());
-                            System.out.println("Balance: ₹" + account.getBalance());
+                            System.out.println("Balance: ₹" + Money.format(account.getBalance()));
                         }
                         System.out.println(); // Separate each customer's accounts
                     }
+                    System.out.println(bank.getAggregates());
+                    if (bank.getMetrics() != null) {
+                        System.out.print(bank.getMetrics());
+                    }
                     break;
 
 
@@ -267,6 +384,9 @@ public class Main {
                 case 0:
                     // Exit the program
                     System.out.println("\nExiting the Banking System.");
+                    if (store != null) {
+                        store.close();
+                    }
                     scanner.close();
                     System.exit(0);
                     break;
@@ -1,69 +1,315 @@
 package bankpackage;
 
-import java.text.DecimalFormat;
-import java.util.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Account {
+    // StatementFormatter is not thread-safe, so each thread printing history keeps its own.
+    private static final ThreadLocal<StatementFormatter> CONSOLE_FORMATTER =
+            ThreadLocal.withInitial(StatementFormatter::new);
+
     private long accountNumber;
-    private double balance;
-    private ArrayList<Transaction> transactionHistory;
+    private volatile long balance;
+    private final TransactionLog transactionHistory;
+    private Customer owner;
+    private volatile Bank bank;
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean journalDeferred; // guarded by lock
+    // Seqlock for readSnapshot: odd while the lock holder is changing balance or history.
+    private volatile long version;
 
     public Account(long accountNumber) {
         this.accountNumber = accountNumber;
-        this.balance = 0.0;
-        this.transactionHistory = new ArrayList<>();
+        this.balance = 0;
+        this.transactionHistory = new TransactionLog();
     }
 
-    public double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    public void setBalance(double balance) {
-        this.balance = balance;
+    // Only for rebuilding an account from a snapshot, image or journal; the change is not journaled.
+    void setBalance(long balance) {
+        lockForUpdate();
+        try {
+            adjustBalance(balance - this.balance);
+        } finally {
+            unlockAfterUpdate();
+        }
+    }
+
+    // Every balance change goes through here so the bank's aggregates stay in step.
+    // Callers must hold the account lock.
+    void adjustBalance(long delta) {
+        long oldBalance = balance;
+        long newBalance = oldBalance + delta;
+        balance = newBalance;
+        Bank bank = this.bank;
+        if (bank != null) {
+            bank.getAggregates().balanceChanged(oldBalance, newBalance);
+        }
     }
 
     public long getAccountNumber() {
         return accountNumber;
     }
 
-    public ArrayList<Transaction> getTransactionHistory() {
+    public Customer getOwner() {
+        return owner;
+    }
+
+    void setOwner(Customer owner) {
+        this.owner = owner;
+    }
+
+    void setBank(Bank bank) {
+        this.bank = bank;
+    }
+
+    // Guards balance and transactionHistory. Code that changes either takes it through lockForUpdate.
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    // Takes the account lock and, unless it is already held, opens a write section that makes
+    // concurrent readSnapshot calls retry. Balance, history size and version are all volatile, so
+    // readers see the three writes in program order.
+    void lockForUpdate() {
+        lock.lock();
+        if (lock.getHoldCount() == 1) {
+            version++;
+        }
+    }
+
+    void unlockAfterUpdate() {
+        if (lock.getHoldCount() == 1) {
+            version++;
+        }
+        lock.unlock();
+    }
+
+    // Fills snapshot with a balance and history length that were current at the same instant, without
+    // locking or allocating; readers only retry while a writer is mid-update.
+    public AccountSnapshot readSnapshot(AccountSnapshot snapshot) {
+        for (int attempt = 1; ; attempt++) {
+            long before = version;
+            if ((before & 1) == 0) {
+                long balance = this.balance;
+                int transactionCount = transactionHistory.size();
+                if (version == before) {
+                    snapshot.set(accountNumber, balance, transactionCount, before);
+                    return snapshot;
+                }
+            }
+            if ((attempt & 63) == 0) {
+                Thread.yield(); // the writer may have been descheduled
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // Take before the account lock and release after it; see Bank.beginMutation.
+    Journal beginMutation() {
+        Bank bank = this.bank;
+        return bank != null ? bank.beginMutation() : null;
+    }
+
+    // Outcome messages go to the owning bank's sink, or the console for an account outside any bank.
+    EventSink events() {
+        Bank bank = this.bank;
+        return bank != null ? bank.getEventSink() : EventSink.CONSOLE;
+    }
+
+    // The owning bank's metrics, or null when they are off.
+    BankMetrics metrics() {
+        Bank bank = this.bank;
+        return bank != null ? bank.getMetrics() : null;
+    }
+
+    public TransactionLog getTransactionHistory() {
         return transactionHistory;
     }
 
-    public void deposit(double amount) {
-        balance += amount;
-        Transaction transaction = new Transaction(new Date(), "Deposit", amount);
-        transactionHistory.add(transaction);
+    // While set, record() leaves journaling to the caller, which logs a combined record instead.
+    void setJournalDeferred(boolean journalDeferred) {
+        this.journalDeferred = journalDeferred;
     }
 
-    public boolean withdraw(double amount) {
-        if (amount > 0 && balance >= amount) { // Check for positive amount and sufficient balance
-            balance -= amount;
-            Transaction transaction = new Transaction(new Date(), "Withdrawal", -amount);
-            transactionHistory.add(transaction);
-            return true;
+    // Callers must hold the account lock (and the journal's mutation lock, if any).
+    // Returns the timestamp stored for the new row.
+    long post(byte type, long amount) {
+        adjustBalance(amount);
+        return record(type, amount);
+    }
+
+    // Callers must hold the account lock (and the journal's mutation lock, if any).
+    long record(byte type, long amount) {
+        long timestamp = transactionHistory.append(System.currentTimeMillis(), type, amount);
+        if (!journalDeferred) {
+            Bank bank = this.bank;
+            Journal journal = bank != null ? bank.getJournal() : null;
+            if (journal != null) {
+                journal.logPosting(accountNumber, type, amount, timestamp);
+            }
+        }
+        return timestamp;
+    }
+
+    // Re-applies a row read back from the journal without re-logging it.
+    void restore(long timestamp, byte type, long amount) {
+        lockForUpdate();
+        try {
+            adjustBalance(amount);
+            transactionHistory.append(timestamp, type, amount);
+        } finally {
+            unlockAfterUpdate();
+        }
+    }
+
+    public void deposit(long amount) {
+        BankMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        Journal journal = beginMutation();
+        lockForUpdate();
+        try {
+            post(Transaction.DEPOSIT, amount);
+        } finally {
+            unlockAfterUpdate();
+            Journal.endMutation(journal);
+        }
+        events().publish(AccountEvent.DEPOSIT, accountNumber, amount);
+        if (metrics != null) {
+            metrics.deposited(System.nanoTime() - start);
+        }
+    }
+
+    public boolean withdraw(long amount) {
+        BankMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        boolean withdrawn = false;
+        Journal journal = beginMutation();
+        lockForUpdate();
+        try {
+            // The check and the debit must happen under one lock hold.
+            if (canWithdraw(balance, amount)) {
+                adjustBalance(-amount);
+                record(withdrawalType(), -amount);
+                withdrawn = true;
+            }
+        } finally {
+            unlockAfterUpdate();
+            Journal.endMutation(journal);
+        }
+        publishWithdrawal(withdrawn, amount);
+        if (metrics != null) {
+            metrics.withdrew(withdrawalType(), withdrawn, System.nanoTime() - start);
+        }
+        return withdrawn;
+    }
+
+    // Whether amount may be withdrawn from an account holding balance. Subclasses with other limits
+    // override this, withdrawalType and publishWithdrawal rather than withdraw itself.
+    boolean canWithdraw(long balance, long amount) {
+        return amount > 0 && balance >= amount; // Check for positive amount and sufficient balance
+    }
+
+    byte withdrawalType() {
+        return Transaction.WITHDRAWAL;
+    }
+
+    void publishWithdrawal(boolean withdrawn, long amount) {
+        if (withdrawn) {
+            events().publish(AccountEvent.WITHDRAWAL, accountNumber, amount);
         } else {
-            System.out.println("Error: Invalid withdrawal amount or insufficient balance.");
-            return false;
+            events().publish(AccountEvent.WITHDRAWAL_DECLINED, accountNumber, amount);
         }
     }
 
-    public void transferFunds(Account targetAccount, double amount) {
-        if (this.withdraw(amount)) {
-            targetAccount.deposit(amount);
-            System.out.println("Funds transferred successfully.");
+    public boolean transferFunds(Account targetAccount, long amount) {
+        if (amount <= 0) {
+            // A negative amount would move money out of the target without checking its balance.
+            events().publish(AccountEvent.TRANSFER_FAILED, accountNumber, amount);
+            return false;
+        }
+        BankMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        // Always lock the lower account number first so opposing transfers cannot deadlock.
+        Account first = this;
+        Account second = targetAccount;
+        if (targetAccount.getAccountNumber() < accountNumber) {
+            first = targetAccount;
+            second = this;
+        }
+        boolean transferred = false;
+        Journal journal = beginMutation();
+        first.lockForUpdate();
+        second.lockForUpdate();
+        try {
+            // Both legs are journaled as one record so recovery never sees half a transfer.
+            if (canWithdraw(balance, amount)) {
+                byte type = withdrawalType();
+                journalDeferred = true;
+                targetAccount.journalDeferred = true;
+                adjustBalance(-amount);
+                long timestamp = record(type, -amount);
+                targetAccount.post(Transaction.DEPOSIT, amount);
+                if (journal != null) {
+                    journal.logTransfer(accountNumber, targetAccount.getAccountNumber(), type, amount, timestamp);
+                }
+                transferred = true;
+            }
+        } finally {
+            journalDeferred = false;
+            targetAccount.journalDeferred = false;
+            second.unlockAfterUpdate();
+            first.unlockAfterUpdate();
+            Journal.endMutation(journal);
+        }
+        publishWithdrawal(transferred, amount);
+        if (transferred) {
+            events().publish(AccountEvent.TRANSFER_COMPLETED, accountNumber, amount);
         } else {
-            System.out.println("Funds transfer failed.");
+            events().publish(AccountEvent.TRANSFER_FAILED, accountNumber, amount);
+        }
+        if (metrics != null) {
+            metrics.transferred(transferred, System.nanoTime() - start);
         }
+        return transferred;
+    }
+
+    // Transactions stamped in [fromMillis, toMillis).
+    public TransactionLog.Slice getTransactionsBetween(long fromMillis, long toMillis) {
+        return transactionHistory.between(fromMillis, toMillis);
+    }
+
+    // Up to limit transactions starting at cursor; continue with the returned slice's getNextCursor().
+    public TransactionLog.Slice getTransactionPage(int cursor, int limit) {
+        return transactionHistory.page(cursor, limit);
+    }
+
+    public TransactionLog.Slice getLatestTransactions(int count) {
+        return transactionHistory.latest(count);
     }
 
     public void displayAccountInfo() {
-        DecimalFormat df = new DecimalFormat("#.##");
-        System.out.println("Account Number: " + accountNumber);
-        System.out.println("Balance: ₹" + df.format(balance));
-        System.out.println("Transaction History:");
-        for (Transaction transaction : transactionHistory) {
-            transaction.displayTransaction();
+        lock.lock();
+        try {
+            System.out.println("Account Number: " + accountNumber);
+            System.out.println("Balance: ₹" + Money.format(balance));
+            System.out.println("Transaction History:");
+            displayTransactions(transactionHistory.slice(0, transactionHistory.size()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void displayTransactions(TransactionLog.Slice transactions) {
+        try {
+            CONSOLE_FORMATTER.get().writeTransactions(System.out, transactions);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // PrintStream never throws, but Appendable says it may
         }
     }
 }
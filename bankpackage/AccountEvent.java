@@ -0,0 +1,25 @@
+package bankpackage;
+
+public enum AccountEvent {
+    DEPOSIT("Deposit successful."),
+    WITHDRAWAL("Withdrawal successful."),
+    WITHDRAWAL_DECLINED("Error: Invalid withdrawal amount or insufficient balance."),
+    OVERDRAFT_WITHDRAWAL("Withdrawal (Overdraft) successful."),
+    OVERDRAFT_LIMIT_EXCEEDED("Error: Exceeds overdraft limit."),
+    TRANSFER_COMPLETED("Funds transferred successfully."),
+    TRANSFER_FAILED("Funds transfer failed."),
+    INTEREST_APPLIED("Interest applied successfully."),
+    INVALID_INTEREST_RATE("Error: Invalid interest rate."),
+    ACCOUNT_DELETED("Account deleted successfully."),
+    ACCOUNT_NOT_FOUND("Account not found.");
+
+    private final String message;
+
+    AccountEvent(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
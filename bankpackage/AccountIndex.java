@@ -0,0 +1,115 @@
+package bankpackage;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Open-addressing hash table from account number to Account. Entries are keyed by the account's own
+// number, so a lookup neither boxes the key nor allocates. Lookups take no lock; writers serialize on
+// the index, and growing it publishes a rebuilt table.
+final class AccountIndex {
+    private static final Account REMOVED = new Account(0); // compared by identity only
+
+    private volatile AtomicReferenceArray<Account> table = new AtomicReferenceArray<>(64);
+    private int size; // guarded by this
+    private int used; // live entries plus REMOVED markers, guarded by this
+
+    private static int slot(long accountNumber, int mask) {
+        long mixed = accountNumber * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    Account get(long accountNumber) {
+        AtomicReferenceArray<Account> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = slot(accountNumber, mask); ; i = (i + 1) & mask) {
+            Account account = table.get(i);
+            if (account == null) {
+                return null;
+            }
+            if (account != REMOVED && account.getAccountNumber() == accountNumber) {
+                return account;
+            }
+        }
+    }
+
+    // Adds account unless its number is already taken, in which case the existing account is returned.
+    synchronized Account putIfAbsent(Account account) {
+        long accountNumber = account.getAccountNumber();
+        AtomicReferenceArray<Account> table = this.table;
+        int mask = table.length() - 1;
+        int free = -1;
+        for (int i = slot(accountNumber, mask); ; i = (i + 1) & mask) {
+            Account existing = table.get(i);
+            if (existing == null) {
+                if (free < 0) {
+                    free = i;
+                    used++;
+                }
+                break;
+            }
+            if (existing == REMOVED) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if (existing.getAccountNumber() == accountNumber) {
+                return existing;
+            }
+        }
+        table.set(free, account);
+        size++;
+        if (used * 2 > table.length()) {
+            rebuild();
+        }
+        return null;
+    }
+
+    synchronized boolean remove(Account account) {
+        AtomicReferenceArray<Account> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = slot(account.getAccountNumber(), mask); ; i = (i + 1) & mask) {
+            Account existing = table.get(i);
+            if (existing == null) {
+                return false;
+            }
+            if (existing == account) {
+                table.set(i, REMOVED);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    synchronized ArrayList<Account> values() {
+        ArrayList<Account> values = new ArrayList<>(size);
+        for (int i = 0; i < table.length(); i++) {
+            Account account = table.get(i);
+            if (account != null && account != REMOVED) {
+                values.add(account);
+            }
+        }
+        return values;
+    }
+
+    // Drops the REMOVED markers and keeps the table at most a quarter full.
+    private void rebuild() {
+        int capacity = 64;
+        while (capacity < size * 4) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Account> old = table;
+        AtomicReferenceArray<Account> rebuilt = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.length(); i++) {
+            Account account = old.get(i);
+            if (account != null && account != REMOVED) {
+                int j = slot(account.getAccountNumber(), mask);
+                while (rebuilt.get(j) != null) {
+                    j = (j + 1) & mask;
+                }
+                rebuilt.set(j, account);
+            }
+        }
+        used = size;
+        table = rebuilt;
+    }
+}
@@ -0,0 +1,39 @@
+package bankpackage;
+
+// Reusable holder for Account.readSnapshot: a balance and the history length that went with it.
+// Keep one per reader thread; each readSnapshot call overwrites it.
+public final class AccountSnapshot {
+    private long accountNumber;
+    private long balance;
+    private int transactionCount;
+    private long version;
+
+    void set(long accountNumber, long balance, int transactionCount, long version) {
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.transactionCount = transactionCount;
+        this.version = version;
+    }
+
+    public long getAccountNumber() {
+        return accountNumber;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    // Sequence number of the newest transaction the balance includes, or -1 if there is none.
+    public int getLatestSequence() {
+        return transactionCount - 1;
+    }
+
+    // Changes whenever the account does, so two snapshots with the same version saw the same state.
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,158 @@
+package bankpackage;
+
+import java.io.IOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Queues events into a bounded ring buffer of primitive columns and hands them to a subclass on a
+// background thread, so publishing never waits on I/O. Publishers block only while the ring is full.
+// The consumer wakes every LINGER_NANOS, or as soon as the ring is half full, so it drains in batches
+// instead of being signalled once per event.
+public abstract class AsyncEventSink implements EventSink {
+    private static final AccountEvent[] EVENTS = AccountEvent.values();
+    private static final long LINGER_NANOS = 1_000_000;
+
+    private final int mask;
+    private final byte[] events;
+    private final long[] accountNumbers;
+    private final long[] amounts;
+    private final long[] timestamps;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread consumer;
+    private long head; // guarded by lock
+    private long tail; // guarded by lock
+    private boolean closed; // guarded by lock
+    private boolean started; // guarded by lock
+
+    protected AsyncEventSink(int capacity, String threadName) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        events = new byte[size];
+        accountNumbers = new long[size];
+        amounts = new long[size];
+        timestamps = new long[size];
+        consumer = new Thread(this::drain, threadName);
+        consumer.setDaemon(true);
+    }
+
+    // Called on the consumer thread for every event, in publish order.
+    protected abstract void handle(AccountEvent event, long accountNumber, long amount, long timestamp)
+            throws IOException;
+
+    // Called on the consumer thread after each drained batch.
+    protected void endOfBatch() throws IOException {
+    }
+
+    // Called on the consumer thread once the ring has been drained for the last time.
+    protected void closeResources() throws IOException {
+    }
+
+    @Override
+    public void publish(AccountEvent event, long accountNumber, long amount) {
+        long timestamp = System.currentTimeMillis();
+        lock.lock();
+        try {
+            while (tail - head > mask && !closed) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                return;
+            }
+            // Started on first use rather than in the constructor, so subclass fields are set by then.
+            if (!started) {
+                started = true;
+                consumer.start();
+            }
+            int slot = (int) (tail & mask);
+            events[slot] = (byte) event.ordinal();
+            accountNumbers[slot] = accountNumber;
+            amounts[slot] = amount;
+            timestamps[slot] = timestamp;
+            if (++tail - head == (mask + 1) >> 1) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        int size = mask + 1;
+        byte[] batchEvents = new byte[size];
+        long[] batchAccountNumbers = new long[size];
+        long[] batchAmounts = new long[size];
+        long[] batchTimestamps = new long[size];
+        boolean done = false;
+        while (!done) {
+            int count = 0;
+            lock.lock();
+            try {
+                long remaining = LINGER_NANOS;
+                while (tail - head <= mask >> 1 && !closed && (remaining > 0 || head == tail)) {
+                    try {
+                        remaining = notEmpty.awaitNanos(remaining > 0 ? remaining : LINGER_NANOS);
+                    } catch (InterruptedException e) {
+                        // Keep draining; close() is the only way to stop the consumer.
+                    }
+                }
+                for (; head != tail; head++, count++) {
+                    int slot = (int) (head & mask);
+                    batchEvents[count] = events[slot];
+                    batchAccountNumbers[count] = accountNumbers[slot];
+                    batchAmounts[count] = amounts[slot];
+                    batchTimestamps[count] = timestamps[slot];
+                }
+                notFull.signalAll();
+                done = closed;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                for (int i = 0; i < count; i++) {
+                    handle(EVENTS[batchEvents[i]], batchAccountNumbers[i], batchAmounts[i], batchTimestamps[i]);
+                }
+                endOfBatch();
+            } catch (IOException e) {
+                System.err.println("Event sink " + consumer.getName() + " failed: " + e.getMessage());
+            }
+        }
+        try {
+            closeResources();
+        } catch (IOException e) {
+            System.err.println("Event sink " + consumer.getName() + " failed to close: " + e.getMessage());
+        }
+    }
+
+    // Delivers everything already published, then stops the consumer.
+    @Override
+    public void close() {
+        boolean running;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            running = started;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (!running) {
+            try {
+                closeResources();
+            } catch (IOException e) {
+                System.err.println("Event sink " + consumer.getName() + " failed to close: " + e.getMessage());
+            }
+            return;
+        }
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
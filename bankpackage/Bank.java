@@ -1,28 +1,360 @@
 package bankpackage;
 
+import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Bank {
+    // Three bytes a char at most in UTF-8, so a name always fits a journal record and a snapshot's
+    // writeUTF.
+    public static final int MAX_CUSTOMER_NAME_LENGTH = 4096;
+
     private ArrayList<Customer> customers;
+    private final CustomerIndex customersById = new CustomerIndex();
+    private final AccountIndex accountsByNumber = new AccountIndex();
+    private volatile Journal journal;
+    private volatile EventSink eventSink = EventSink.CONSOLE;
+    private final BankAggregates aggregates = new BankAggregates();
+    private volatile HistoryArchive historyArchive;
+    private volatile BankMetrics metrics;
+    private volatile BankImage image; // customers not built yet are read from here; null once all are
+    private int imageCustomersLoaded; // guarded by this
 
     public Bank() {
         customers = new ArrayList<>();
     }
 
+    // Throws IllegalArgumentException, changing nothing, if the customer name is too long or the
+    // customer id or the number of one of the customer's accounts is already in use.
     public void addCustomer(Customer customer) {
-        customers.add(customer);
+        if (customer.getCustomerName().length() > MAX_CUSTOMER_NAME_LENGTH) {
+            throw new IllegalArgumentException("Customer name is longer than " + MAX_CUSTOMER_NAME_LENGTH
+                    + " characters");
+        }
+        BankImage image = this.image;
+        if (image != null) {
+            loadFromImage(image.findCustomerRecord(customer.getCustomerId()));
+        }
+        Journal journal = beginMutation();
+        try {
+            synchronized (this) {
+                if (customersById.get(customer.getCustomerId()) != null) {
+                    throw new IllegalArgumentException("Customer ID " + customer.getCustomerId() + " is already in use");
+                }
+                HashSet<Long> accountNumbers = new HashSet<>();
+                for (Account account : customer.getAccounts()) {
+                    if (isTaken(account.getAccountNumber()) || !accountNumbers.add(account.getAccountNumber())) {
+                        throw new IllegalArgumentException("Account number " + account.getAccountNumber()
+                                + " is already in use");
+                    }
+                }
+                customersById.putIfAbsent(customer);
+                customers.add(customer);
+                customer.setBank(this);
+                if (journal != null) {
+                    journal.logAddCustomer(customer.getCustomerId(), customer.getCustomerName());
+                }
+                for (Account account : customer.getAccounts()) {
+                    registerAccount(account, customer.getCustomerId(), journal);
+                }
+            }
+        } finally {
+            Journal.endMutation(journal);
+        }
     }
 
     public ArrayList<Customer> getCustomers() {
+        loadAllFromImage();
         return customers;
     }
 
     public Customer findCustomerById(int customerId) {
-        for (Customer customer : customers) {
-            if (customer.getCustomerId() == customerId) {
+        Customer customer = customersById.get(customerId);
+        if (customer == null) {
+            BankImage image = this.image;
+            if (image != null) {
+                customer = loadFromImage(image.findCustomerRecord(customerId));
+            }
+        }
+        BankMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.customerLookedUp(customer != null);
+        }
+        return customer;
+    }
+
+    public EventSink getEventSink() {
+        return eventSink;
+    }
+
+    public void setEventSink(EventSink eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    public BankAggregates getAggregates() {
+        return aggregates;
+    }
+
+    // null while metrics are off, which is the default.
+    public BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(BankMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Account findAccount(long accountNumber) {
+        Account account = accountsByNumber.get(accountNumber);
+        if (account == null) {
+            BankImage image = this.image;
+            if (image != null && loadFromImage(image.findAccountRecord(accountNumber)) != null) {
+                account = accountsByNumber.get(accountNumber);
+            }
+        }
+        BankMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.accountLookedUp(account != null);
+        }
+        return account;
+    }
+
+    public boolean transfer(long sourceAccountNumber, long targetAccountNumber, long amount) {
+        if (amount <= 0) {
+            return false;
+        }
+        Account source = findAccount(sourceAccountNumber);
+        Account target = findAccount(targetAccountNumber);
+        if (source == null || target == null) {
+            return false;
+        }
+        return source.transferFunds(target, amount);
+    }
+
+    public InterestAccrualReport accrueInterest(LocalDate businessDate) {
+        return accrueInterest(businessDate, RoundingMode.HALF_EVEN, ForkJoinPool.commonPool());
+    }
+
+    // End-of-day accrual over every savings account. Each account accrues at most once per business
+    // date, so re-running the job for the same date posts nothing new.
+    public InterestAccrualReport accrueInterest(LocalDate businessDate, RoundingMode roundingMode, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        loadAllFromImage();
+        ArrayList<SavingsAccount> savingsAccounts = new ArrayList<>();
+        for (Account account : accountsByNumber.values()) {
+            if (account instanceof SavingsAccount) {
+                savingsAccounts.add((SavingsAccount) account);
+            }
+        }
+        AccrualTask task = new AccrualTask(savingsAccounts, 0, savingsAccounts.size(), businessDate.toEpochDay(),
+                roundingMode);
+        pool.invoke(task);
+        return new InterestAccrualReport(businessDate, task.processed.sum(), task.skipped.sum(),
+                task.totalInterest.sum(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static final class AccrualTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 4096;
+
+        private final List<SavingsAccount> accounts;
+        private final int from;
+        private final int to;
+        private final long epochDay;
+        private final RoundingMode roundingMode;
+        private final LongAdder processed;
+        private final LongAdder skipped;
+        private final LongAdder totalInterest;
+
+        AccrualTask(List<SavingsAccount> accounts, int from, int to, long epochDay, RoundingMode roundingMode) {
+            this(accounts, from, to, epochDay, roundingMode, new LongAdder(), new LongAdder(), new LongAdder());
+        }
+
+        private AccrualTask(List<SavingsAccount> accounts, int from, int to, long epochDay, RoundingMode roundingMode,
+                            LongAdder processed, LongAdder skipped, LongAdder totalInterest) {
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.epochDay = epochDay;
+            this.roundingMode = roundingMode;
+            this.processed = processed;
+            this.skipped = skipped;
+            this.totalInterest = totalInterest;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new AccrualTask(accounts, from, mid, epochDay, roundingMode, processed, skipped, totalInterest),
+                        new AccrualTask(accounts, mid, to, epochDay, roundingMode, processed, skipped, totalInterest));
+                return;
+            }
+            long count = 0;
+            long skippedCount = 0;
+            long interest = 0;
+            for (int i = from; i < to; i++) {
+                long posted = accounts.get(i).accrueInterest(epochDay, roundingMode);
+                if (posted < 0) {
+                    skippedCount++;
+                } else {
+                    count++;
+                    interest += posted;
+                }
+            }
+            processed.add(count);
+            skipped.add(skippedCount);
+            totalInterest.add(interest);
+        }
+    }
+
+    // Whether accountNumber belongs to a registered account or to one still waiting in the image.
+    private boolean isTaken(long accountNumber) {
+        BankImage image = this.image;
+        return accountsByNumber.get(accountNumber) != null
+                || (image != null && image.findAccountRecord(accountNumber) >= 0);
+    }
+
+    // Registers and journals account under its lock, so no posting to it can reach the journal
+    // ahead of the record that opens it. Returns false, changing nothing, if the number is in use.
+    synchronized boolean registerAccount(Account account, int customerId, Journal journal) {
+        if (isTaken(account.getAccountNumber())) {
+            return false;
+        }
+        account.getLock().lock();
+        try {
+            registerAccount(account, true);
+            if (journal != null) {
+                journal.logAddAccount(customerId, account);
+            }
+        } finally {
+            account.getLock().unlock();
+        }
+        return true;
+    }
+
+    // Under the account lock, so the aggregates see the balance exactly once. Accounts built from
+    // an image were counted up front, in attachImage. Callers hold the bank's monitor and have
+    // checked that the number is free.
+    private void registerAccount(Account account, boolean counted) {
+        account.getLock().lock();
+        try {
+            if (accountsByNumber.putIfAbsent(account) != null) {
+                throw new IllegalStateException("Account number " + account.getAccountNumber() + " is already in use");
+            }
+            account.setBank(this);
+            if (counted) {
+                aggregates.accountAdded(account);
+            }
+            HistoryArchive archive = historyArchive;
+            if (archive != null) {
+                account.getTransactionHistory().setArchive(archive, account.getAccountNumber());
+            }
+        } finally {
+            account.getLock().unlock();
+        }
+    }
+
+    void unregisterAccount(Account account) {
+        account.getLock().lock();
+        try {
+            if (accountsByNumber.remove(account)) {
+                aggregates.accountRemoved(account);
+            }
+            account.setBank(null);
+        } finally {
+            account.getLock().unlock();
+        }
+    }
+
+    public HistoryArchive getHistoryArchive() {
+        return historyArchive;
+    }
+
+    // Moves older transaction history of every account, present and future, into the archive's
+    // mapped segments; null stops further spilling. Already spilled rows stay readable either way.
+    public void setHistoryArchive(HistoryArchive archive) {
+        historyArchive = archive;
+        for (Account account : accountsByNumber.values()) {
+            account.getLock().lock();
+            try {
+                account.getTransactionHistory().setArchive(archive, account.getAccountNumber());
+            } finally {
+                account.getLock().unlock();
+            }
+        }
+    }
+
+    // Serves customers from image, building each one on first use; the totals describe every account
+    // in it so the aggregates are right before anything has been built.
+    void attachImage(BankImage image, long totalBalance, long overdraftInUse, long savingsAccounts,
+                     long currentAccounts, long otherAccounts) {
+        aggregates.preload(totalBalance, overdraftInUse, savingsAccounts, currentAccounts, otherAccounts);
+        this.image = image.customerCount() > 0 ? image : null;
+    }
+
+    // Builds the customer whose image record is at record, with its accounts, unless that has already
+    // happened. Returns the customer, or null if record is -1 (not in the image).
+    private Customer loadFromImage(long record) {
+        if (record < 0) {
+            return null;
+        }
+        synchronized (this) {
+            BankImage image = this.image;
+            if (image == null) {
+                return null;
+            }
+            Customer customer = customersById.get(image.customerIdAt(record));
+            if (customer != null) {
                 return customer;
             }
+            customer = image.readCustomer(record);
+            customersById.putIfAbsent(customer);
+            customers.add(customer);
+            customer.setBank(this);
+            for (Account account : customer.getAccounts()) {
+                registerAccount(account, false);
+            }
+            if (++imageCustomersLoaded == image.customerCount()) {
+                this.image = null; // everything is on the heap now; let the mapping go
+            }
+            return customer;
+        }
+    }
+
+    // For operations that need every customer, such as full scans.
+    private void loadAllFromImage() {
+        BankImage image = this.image;
+        if (image != null) {
+            for (int i = 0; i < image.customerCount(); i++) {
+                loadFromImage(image.customerRecordAt(i));
+            }
+        }
+    }
+
+    synchronized int getImageCustomersLoaded() {
+        return imageCustomersLoaded;
+    }
+
+    Journal getJournal() {
+        return journal;
+    }
+
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Returns the journal with its checkpoint read lock held, or null when the bank is not persistent.
+    // Pair with Journal.endMutation in a finally block.
+    Journal beginMutation() {
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.beginMutation();
         }
-        return null;
+        return journal;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package bankpackage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Bank-wide running totals, updated as balances change so they can be read at any time without
+// walking every account. Totals are exact once writers are quiet; while transactions are in flight
+// a read may land between the two legs of a transfer.
+public class BankAggregates {
+    private final LongAdder totalBalance = new LongAdder();
+    private final LongAdder overdraftInUse = new LongAdder();
+    private final LongAdder savingsAccounts = new LongAdder();
+    private final LongAdder currentAccounts = new LongAdder();
+    private final LongAdder otherAccounts = new LongAdder();
+
+    void accountAdded(Account account) {
+        countFor(account).increment();
+        balanceChanged(0, account.getBalance());
+    }
+
+    void accountRemoved(Account account) {
+        countFor(account).decrement();
+        balanceChanged(account.getBalance(), 0);
+    }
+
+    // Counts accounts that exist but are registered later without being counted again; see
+    // Bank.attachImage.
+    void preload(long totalBalance, long overdraftInUse, long savingsAccounts, long currentAccounts,
+                 long otherAccounts) {
+        this.totalBalance.add(totalBalance);
+        this.overdraftInUse.add(overdraftInUse);
+        this.savingsAccounts.add(savingsAccounts);
+        this.currentAccounts.add(currentAccounts);
+        this.otherAccounts.add(otherAccounts);
+    }
+
+    void balanceChanged(long oldBalance, long newBalance) {
+        totalBalance.add(newBalance - oldBalance);
+        long overdraftDelta = Math.max(0, -newBalance) - Math.max(0, -oldBalance);
+        if (overdraftDelta != 0) {
+            overdraftInUse.add(overdraftDelta);
+        }
+    }
+
+    private LongAdder countFor(Account account) {
+        if (account instanceof SavingsAccount) {
+            return savingsAccounts;
+        }
+        if (account instanceof CurrentAccount) {
+            return currentAccounts;
+        }
+        return otherAccounts;
+    }
+
+    public long getTotalBalance() {
+        return totalBalance.sum();
+    }
+
+    // Sum of every negative balance, i.e. overdraft currently drawn across CurrentAccounts.
+    public long getOverdraftInUse() {
+        return overdraftInUse.sum();
+    }
+
+    public long getSavingsAccountCount() {
+        return savingsAccounts.sum();
+    }
+
+    public long getCurrentAccountCount() {
+        return currentAccounts.sum();
+    }
+
+    public long getOtherAccountCount() {
+        return otherAccounts.sum();
+    }
+
+    public long getAccountCount() {
+        return getSavingsAccountCount() + getCurrentAccountCount() + getOtherAccountCount();
+    }
+
+    @Override
+    public String toString() {
+        return "Accounts: " + getAccountCount() + " (Savings: " + getSavingsAccountCount() + ", Current: "
+                + getCurrentAccountCount() + ")\nTotal Balance: ₹" + Money.format(getTotalBalance())
+                + "\nOverdraft In Use: ₹" + Money.format(getOverdraftInUse());
+    }
+}
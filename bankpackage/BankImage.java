@@ -0,0 +1,380 @@
+package bankpackage;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+
+// Compact, memory-mapped image of a whole Bank for fast start-up. load() only maps the file and
+// reads the header, so the bank is ready at once; a customer and its accounts are built the first
+// time one of them is looked up, and full 1024-row history chunks are used in place from the
+// mapping (same layout as HistoryArchive segments) rather than copied.
+//
+// Layout, all big-endian:
+//
+//   header (HEADER_SIZE bytes): magic, version, customer count, account count, offsets of the two
+//       indexes, then balance totals and account counts for BankAggregates
+//   customer records: int id, int name length, name (UTF-8), int account count, then per account:
+//       byte kind, long number, long balance, long overdraft limit, long last accrual day,
+//       int rate length, rate (decimal string), int rows, full chunks of CHUNK_SIZE timestamps +
+//       CHUNK_SIZE amounts + CHUNK_SIZE types, then the remaining rows in the same column order
+//   customer index: (long id, long record offset) sorted by id
+//   account index: (long account number, long customer record offset) sorted by account number
+//
+// The file is mapped in WINDOW_SIZE pieces; records are padded so none straddles two windows.
+public final class BankImage {
+    private static final int MAGIC = 0x42494d47; // "BIMG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 128;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int WINDOW_SHIFT = 30;
+    private static final long WINDOW_SIZE = 1L << WINDOW_SHIFT;
+    private static final int CHUNK_SIZE = TransactionLog.CHUNK_SIZE;
+    private static final int CHUNK_BYTES = CHUNK_SIZE * 17;
+
+    private final ByteBuffer[] windows;
+    private final int customerCount;
+    private final int accountCount;
+    private final long customerIndexOffset;
+    private final long accountIndexOffset;
+
+    private BankImage(ByteBuffer[] windows) throws IOException {
+        this.windows = windows;
+        if (getInt(0) != MAGIC || getInt(4) != VERSION) {
+            throw new IOException("Not a bank image");
+        }
+        customerCount = getInt(8);
+        accountCount = getInt(12);
+        customerIndexOffset = getLong(16);
+        accountIndexOffset = getLong(24);
+    }
+
+    // Maps file and returns a Bank backed by it. The bank has no journal; wrap the result in a
+    // snapshot (BankSnapshot via BankStore) if it has to become durable.
+    public static Bank load(Path file) throws IOException {
+        BankImage image;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] windows = new ByteBuffer[(int) ((size + WINDOW_SIZE - 1) >>> WINDOW_SHIFT)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = (long) i << WINDOW_SHIFT;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+            }
+            image = new BankImage(windows);
+        }
+        Bank bank = new Bank();
+        bank.attachImage(image, image.getLong(32), image.getLong(40), image.getLong(48), image.getLong(56),
+                image.getLong(64));
+        return bank;
+    }
+
+    int customerCount() {
+        return customerCount;
+    }
+
+    // Record offset of the index-th customer in id order.
+    long customerRecordAt(int index) {
+        return getLong(customerIndexOffset + (long) index * INDEX_ENTRY_SIZE + 8);
+    }
+
+    // Record offset of the customer, or -1 if the image does not have it.
+    long findCustomerRecord(int customerId) {
+        return search(customerIndexOffset, customerCount, customerId);
+    }
+
+    // Record offset of the account's owner, or -1 if the image does not have the account.
+    long findAccountRecord(long accountNumber) {
+        return search(accountIndexOffset, accountCount, accountNumber);
+    }
+
+    int customerIdAt(long record) {
+        return getInt(record);
+    }
+
+    private long search(long indexOffset, int count, long key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = indexOffset + (long) mid * INDEX_ENTRY_SIZE;
+            long midKey = getLong(entry);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return getLong(entry + 8);
+            }
+        }
+        return -1;
+    }
+
+    // Builds the customer at record with all of its accounts; the caller registers them with the bank.
+    Customer readCustomer(long record) {
+        ByteBuffer in = window(record).duplicate();
+        in.position((int) (record & (WINDOW_SIZE - 1)));
+        int customerId = in.getInt();
+        Customer customer = new Customer(customerId, readString(in));
+        int accounts = in.getInt();
+        for (int i = 0; i < accounts; i++) {
+            customer.addAccount(readAccount(in));
+        }
+        return customer;
+    }
+
+    private static Account readAccount(ByteBuffer in) {
+        byte kind = in.get();
+        long accountNumber = in.getLong();
+        long balance = in.getLong();
+        long overdraftLimit = in.getLong();
+        long lastAccrualDay = in.getLong();
+        String rate = readString(in);
+        Account account = BankSnapshot.newAccount(kind, accountNumber, overdraftLimit,
+                kind == BankSnapshot.SAVINGS ? new BigDecimal(rate) : null);
+        if (kind == BankSnapshot.SAVINGS) {
+            ((SavingsAccount) account).setLastAccrualDay(lastAccrualDay);
+        }
+        TransactionLog history = account.getTransactionHistory();
+        int rows = in.getInt();
+        for (int chunk = 0; chunk < rows / CHUNK_SIZE; chunk++) {
+            history.appendMappedChunk(in.slice(in.position(), CHUNK_BYTES).asReadOnlyBuffer());
+            in.position(in.position() + CHUNK_BYTES);
+        }
+        int tail = rows % CHUNK_SIZE;
+        int timestamps = in.position();
+        int amounts = timestamps + tail * 8;
+        int types = amounts + tail * 8;
+        for (int row = 0; row < tail; row++) {
+            history.append(in.getLong(timestamps + row * 8), in.get(types + row), in.getLong(amounts + row * 8));
+        }
+        in.position(types + tail);
+        account.setBalance(balance);
+        return account;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer window(long offset) {
+        return windows[(int) (offset >>> WINDOW_SHIFT)];
+    }
+
+    private int getInt(long offset) {
+        return window(offset).getInt((int) (offset & (WINDOW_SIZE - 1)));
+    }
+
+    private long getLong(long offset) {
+        return window(offset).getLong((int) (offset & (WINDOW_SIZE - 1)));
+    }
+
+    // Writes every customer and account currently in bank. Each account is captured consistently
+    // (balance together with the history it includes), but the image as a whole is only a
+    // point-in-time copy if the bank is quiet while it is written.
+    public static void write(Bank bank, Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int customers = bank.getCustomers().size();
+        long[] customerIds = new long[customers];
+        long[] customerRecords = new long[customers];
+        long[] accountNumbers = new long[Math.max(16, customers)];
+        long[] accountRecords = new long[accountNumbers.length];
+        int accounts = 0;
+        long[] totals = new long[5];
+        AccountSnapshot snapshot = new AccountSnapshot();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            Output out = new Output(channel, HEADER_SIZE);
+            for (int c = 0; c < customers; c++) {
+                Customer customer = bank.getCustomers().get(c);
+                Account[] owned = customer.getAccounts().toArray(new Account[0]);
+                byte[] name = customer.getCustomerName().getBytes(StandardCharsets.UTF_8);
+                byte[][] rates = new byte[owned.length][];
+                int[] rows = new int[owned.length];
+                long[] balances = new long[owned.length];
+                long size = 12 + name.length;
+                for (int i = 0; i < owned.length; i++) {
+                    owned[i].readSnapshot(snapshot);
+                    balances[i] = snapshot.getBalance();
+                    rows[i] = snapshot.getTransactionCount();
+                    rates[i] = owned[i] instanceof SavingsAccount
+                            ? ((SavingsAccount) owned[i]).getInterestRate().toString().getBytes(StandardCharsets.UTF_8)
+                            : new byte[0];
+                    size += 41 + rates[i].length + rows[i] * 17L;
+                }
+                if (size > WINDOW_SIZE) {
+                    throw new IOException("Customer " + customer.getCustomerId() + " is too large for a bank image");
+                }
+                if ((out.position() >>> WINDOW_SHIFT) != ((out.position() + size - 1) >>> WINDOW_SHIFT)) {
+                    out.padTo(((out.position() >>> WINDOW_SHIFT) + 1) << WINDOW_SHIFT);
+                }
+                long record = out.position();
+                customerIds[c] = customer.getCustomerId();
+                customerRecords[c] = record;
+                out.writeInt(customer.getCustomerId());
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeInt(owned.length);
+                for (int i = 0; i < owned.length; i++) {
+                    if (accounts == accountNumbers.length) {
+                        accountNumbers = Arrays.copyOf(accountNumbers, accounts * 2);
+                        accountRecords = Arrays.copyOf(accountRecords, accounts * 2);
+                    }
+                    accountNumbers[accounts] = owned[i].getAccountNumber();
+                    accountRecords[accounts++] = record;
+                    writeAccount(out, owned[i], balances[i], rates[i], rows[i]);
+                    byte kind = BankSnapshot.kindOf(owned[i]);
+                    totals[0] += balances[i];
+                    totals[1] += Math.max(0, -balances[i]);
+                    totals[kind == BankSnapshot.SAVINGS ? 2 : kind == BankSnapshot.CURRENT ? 3 : 4]++;
+                }
+            }
+            out.padTo((out.position() + INDEX_ENTRY_SIZE - 1) / INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE);
+            long customerIndex = out.position();
+            sort(customerIds, customerRecords, 0, customers - 1);
+            for (int i = 0; i < customers; i++) {
+                out.writeLong(customerIds[i]);
+                out.writeLong(customerRecords[i]);
+            }
+            long accountIndex = out.position();
+            sort(accountNumbers, accountRecords, 0, accounts - 1);
+            for (int i = 1; i < accounts; i++) {
+                if (accountNumbers[i] == accountNumbers[i - 1]) {
+                    throw new IOException("Account number " + accountNumbers[i] + " appears more than once");
+                }
+            }
+            for (int i = 0; i < accounts; i++) {
+                out.writeLong(accountNumbers[i]);
+                out.writeLong(accountRecords[i]);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(customers).putInt(accounts).putLong(customerIndex)
+                    .putLong(accountIndex);
+            for (long total : totals) {
+                header.putLong(total);
+            }
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeAccount(Output out, Account account, long balance, byte[] rate, int rows)
+            throws IOException {
+        byte kind = BankSnapshot.kindOf(account);
+        out.writeByte(kind);
+        out.writeLong(account.getAccountNumber());
+        out.writeLong(balance);
+        out.writeLong(kind == BankSnapshot.CURRENT ? ((CurrentAccount) account).getOverdraftLimit() : 0);
+        out.writeLong(kind == BankSnapshot.SAVINGS ? ((SavingsAccount) account).getLastAccrualDay() : 0);
+        out.writeInt(rate.length);
+        out.write(rate);
+        out.writeInt(rows);
+        TransactionLog history = account.getTransactionHistory();
+        for (int from = 0; from < rows; from += CHUNK_SIZE) {
+            int to = Math.min(rows, from + CHUNK_SIZE);
+            for (int row = from; row < to; row++) {
+                out.writeLong(history.getTimestamp(row));
+            }
+            for (int row = from; row < to; row++) {
+                out.writeLong(history.getAmount(row));
+            }
+            for (int row = from; row < to; row++) {
+                out.writeByte(history.getType(row));
+            }
+        }
+    }
+
+    // Sorts keys[from..to] ascending, moving values along with them.
+    private static void sort(long[] keys, long[] values, int from, int to) {
+        while (to - from > 16) {
+            long pivot = keys[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // Recurse into the smaller half so the stack stays shallow.
+            if (j - from < to - i) {
+                sort(keys, values, from, j);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && keys[j - 1] > keys[j]; j--) {
+                swap(keys, values, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(long[] keys, long[] values, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    // DataOutputStream that keeps a long position, since images may exceed 2 GB.
+    private static final class Output extends DataOutputStream {
+        private final long start;
+
+        Output(FileChannel channel, long start) {
+            super(new CountingStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16)));
+            this.start = start;
+        }
+
+        long position() {
+            return start + ((CountingStream) out).count;
+        }
+
+        void padTo(long target) throws IOException {
+            while (position() < target) {
+                write(0);
+            }
+        }
+    }
+
+    private static final class CountingStream extends FilterOutputStream {
+        long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
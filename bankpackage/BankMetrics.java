@@ -0,0 +1,219 @@
+package bankpackage;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Operation counts and latencies for one Bank. Counters are LongAdders, so concurrent updates land
+// on separate cells instead of fighting over one; latencies go into LatencyHistograms. Attach with
+// Bank.setMetrics. While no metrics are attached, the hooks cost one volatile read and a null check.
+//
+// Transfers run through TransferBatcher are counted but not timed, since they complete as a batch.
+public final class BankMetrics implements BankMetricsMXBean {
+    private final LongAdder deposits = new LongAdder();
+    private final LongAdder withdrawals = new LongAdder();
+    private final LongAdder withdrawalsDeclined = new LongAdder();
+    private final LongAdder overdraftWithdrawals = new LongAdder();
+    private final LongAdder overdraftWithdrawalsDeclined = new LongAdder();
+    private final LongAdder transfers = new LongAdder();
+    private final LongAdder transfersFailed = new LongAdder();
+    private final LongAdder interestPostings = new LongAdder();
+    private final LongAdder accountLookups = new LongAdder();
+    private final LongAdder accountLookupMisses = new LongAdder();
+    private final LongAdder customerLookups = new LongAdder();
+    private final LongAdder customerLookupMisses = new LongAdder();
+    private final LatencyHistogram depositLatency = new LatencyHistogram();
+    private final LatencyHistogram withdrawalLatency = new LatencyHistogram();
+    private final LatencyHistogram transferLatency = new LatencyHistogram();
+
+    void deposited(long nanos) {
+        deposits.increment();
+        depositLatency.record(nanos);
+    }
+
+    void withdrew(byte type, boolean withdrawn, long nanos) {
+        if (type == Transaction.OVERDRAFT_WITHDRAWAL) {
+            (withdrawn ? overdraftWithdrawals : overdraftWithdrawalsDeclined).increment();
+        } else {
+            (withdrawn ? withdrawals : withdrawalsDeclined).increment();
+        }
+        withdrawalLatency.record(nanos);
+    }
+
+    void transferred(boolean completed, long nanos) {
+        transferred(completed);
+        transferLatency.record(nanos);
+    }
+
+    void transferred(boolean completed) {
+        (completed ? transfers : transfersFailed).increment();
+    }
+
+    void interestPosted() {
+        interestPostings.increment();
+    }
+
+    void accountLookedUp(boolean found) {
+        accountLookups.increment();
+        if (!found) {
+            accountLookupMisses.increment();
+        }
+    }
+
+    void customerLookedUp(boolean found) {
+        customerLookups.increment();
+        if (!found) {
+            customerLookupMisses.increment();
+        }
+    }
+
+    // Registers this instance with the platform MBean server as bankpackage:type=BankMetrics,name=<name>.
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("bankpackage", "type", "BankMetrics");
+        objectName = new ObjectName(objectName.getCanonicalName() + ",name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public LatencyHistogram getDepositLatency() {
+        return depositLatency;
+    }
+
+    public LatencyHistogram getWithdrawalLatency() {
+        return withdrawalLatency;
+    }
+
+    public LatencyHistogram getTransferLatency() {
+        return transferLatency;
+    }
+
+    @Override
+    public long getDeposits() {
+        return deposits.sum();
+    }
+
+    @Override
+    public long getWithdrawals() {
+        return withdrawals.sum();
+    }
+
+    @Override
+    public long getWithdrawalsDeclined() {
+        return withdrawalsDeclined.sum();
+    }
+
+    @Override
+    public long getOverdraftWithdrawals() {
+        return overdraftWithdrawals.sum();
+    }
+
+    @Override
+    public long getOverdraftWithdrawalsDeclined() {
+        return overdraftWithdrawalsDeclined.sum();
+    }
+
+    @Override
+    public long getTransfers() {
+        return transfers.sum();
+    }
+
+    @Override
+    public long getTransfersFailed() {
+        return transfersFailed.sum();
+    }
+
+    @Override
+    public long getInterestPostings() {
+        return interestPostings.sum();
+    }
+
+    @Override
+    public long getAccountLookups() {
+        return accountLookups.sum();
+    }
+
+    @Override
+    public long getAccountLookupMisses() {
+        return accountLookupMisses.sum();
+    }
+
+    @Override
+    public long getCustomerLookups() {
+        return customerLookups.sum();
+    }
+
+    @Override
+    public long getCustomerLookupMisses() {
+        return customerLookupMisses.sum();
+    }
+
+    @Override
+    public double getDepositP50Micros() {
+        return depositLatency.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getDepositP99Micros() {
+        return depositLatency.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getWithdrawalP50Micros() {
+        return withdrawalLatency.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getWithdrawalP99Micros() {
+        return withdrawalLatency.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getTransferP50Micros() {
+        return transferLatency.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getTransferP99Micros() {
+        return transferLatency.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public String getSnapshot() {
+        return toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : new LongAdder[]{deposits, withdrawals, withdrawalsDeclined, overdraftWithdrawals,
+                overdraftWithdrawalsDeclined, transfers, transfersFailed, interestPostings, accountLookups,
+                accountLookupMisses, customerLookups, customerLookupMisses}) {
+            counter.reset();
+        }
+        depositLatency.reset();
+        withdrawalLatency.reset();
+        transferLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("===== Bank Metrics =====\n");
+        sb.append(String.format("%-28s %,d%n", "deposits", getDeposits()));
+        sb.append(String.format("%-28s %,d%n", "withdrawals", getWithdrawals()));
+        sb.append(String.format("%-28s %,d%n", "withdrawals declined", getWithdrawalsDeclined()));
+        sb.append(String.format("%-28s %,d%n", "overdraft withdrawals", getOverdraftWithdrawals()));
+        sb.append(String.format("%-28s %,d%n", "overdraft limit exceeded", getOverdraftWithdrawalsDeclined()));
+        sb.append(String.format("%-28s %,d%n", "transfers", getTransfers()));
+        sb.append(String.format("%-28s %,d%n", "transfers failed", getTransfersFailed()));
+        sb.append(String.format("%-28s %,d%n", "interest postings", getInterestPostings()));
+        sb.append(String.format("%-28s %,d (%,d misses)%n", "account lookups", getAccountLookups(),
+                getAccountLookupMisses()));
+        sb.append(String.format("%-28s %,d (%,d misses)%n", "customer lookups", getCustomerLookups(),
+                getCustomerLookupMisses()));
+        sb.append("deposit latency:    ").append(depositLatency).append('\n');
+        sb.append("withdrawal latency: ").append(withdrawalLatency).append('\n');
+        sb.append("transfer latency:   ").append(transferLatency).append('\n');
+        return sb.toString();
+    }
+}
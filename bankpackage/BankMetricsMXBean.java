@@ -0,0 +1,44 @@
+package bankpackage;
+
+// JMX view of BankMetrics. Latencies are in microseconds.
+public interface BankMetricsMXBean {
+    long getDeposits();
+
+    long getWithdrawals();
+
+    long getWithdrawalsDeclined();
+
+    long getOverdraftWithdrawals();
+
+    long getOverdraftWithdrawalsDeclined();
+
+    long getTransfers();
+
+    long getTransfersFailed();
+
+    long getInterestPostings();
+
+    long getAccountLookups();
+
+    long getAccountLookupMisses();
+
+    long getCustomerLookups();
+
+    long getCustomerLookupMisses();
+
+    double getDepositP50Micros();
+
+    double getDepositP99Micros();
+
+    double getWithdrawalP50Micros();
+
+    double getWithdrawalP99Micros();
+
+    double getTransferP50Micros();
+
+    double getTransferP99Micros();
+
+    String getSnapshot();
+
+    void reset();
+}
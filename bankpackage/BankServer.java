@@ -0,0 +1,80 @@
+package bankpackage;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+// Exposes a Bank's operations over TCP with a line-oriented text protocol (see LineProtocolServer),
+// served by a fixed set of selector threads. Amounts are in paise. Replies are "OK",
+// "OK <value>", "NO" (account not found, amount not positive or operation declined) or
+// "ERR <message>". There is no authentication, so bind it to a trusted interface only.
+//
+//   DEPOSIT <accountNumber> <paise>         WITHDRAW <accountNumber> <paise>
+//   TRANSFER <source> <target> <paise>      BALANCE <accountNumber>
+//   INTEREST <savingsAccountNumber>         CUSTOMER <customerId>   -> OK <accounts> <name>
+//   STATS                                   -> OK <server-side latency percentiles>
+public class BankServer extends LineProtocolServer {
+    private final Bank bank;
+
+    public BankServer(Bank bank, InetAddress address, int port) throws IOException {
+        super(address, port, "bank-server");
+        this.bank = bank;
+    }
+
+    public BankServer(Bank bank, int port) throws IOException {
+        this(bank, InetAddress.getLoopbackAddress(), port);
+    }
+
+    @Override
+    protected String handle(String line) {
+        String[] parts = line.split(" ");
+        try {
+            switch (parts[0]) {
+                case "DEPOSIT": {
+                    Account account = bank.findAccount(Long.parseLong(parts[1]));
+                    long amount = Long.parseLong(parts[2]);
+                    if (account == null || amount <= 0) {
+                        return "NO";
+                    }
+                    account.deposit(amount);
+                    return "OK";
+                }
+                case "WITHDRAW": {
+                    Account account = bank.findAccount(Long.parseLong(parts[1]));
+                    long amount = Long.parseLong(parts[2]);
+                    return reply(account != null && amount > 0 && account.withdraw(amount));
+                }
+                case "TRANSFER": {
+                    long amount = Long.parseLong(parts[3]);
+                    return reply(amount > 0 && bank.transfer(Long.parseLong(parts[1]), Long.parseLong(parts[2]), amount));
+                }
+                case "BALANCE": {
+                    Account account = bank.findAccount(Long.parseLong(parts[1]));
+                    return account == null ? "NO" : "OK " + account.getBalance();
+                }
+                case "INTEREST": {
+                    Account account = bank.findAccount(Long.parseLong(parts[1]));
+                    if (!(account instanceof SavingsAccount)) {
+                        return "NO";
+                    }
+                    ((SavingsAccount) account).applyInterest();
+                    return "OK";
+                }
+                case "CUSTOMER": {
+                    Customer customer = bank.findCustomerById(Integer.parseInt(parts[1]));
+                    return customer == null ? "NO"
+                            : "OK " + customer.getAccounts().size() + " " + customer.getCustomerName();
+                }
+                case "STATS":
+                    return "OK " + getLatency();
+                default:
+                    return "ERR unknown command " + parts[0];
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return "ERR malformed request: " + line;
+        }
+    }
+
+    private static String reply(boolean ok) {
+        return ok ? "OK" : "NO";
+    }
+}
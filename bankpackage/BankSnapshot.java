@@ -0,0 +1,181 @@
+package bankpackage;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+// Compact point-in-time image of a Bank: every customer, account and transaction row, tagged with
+// the sequence number of the last journal record it includes.
+final class BankSnapshot {
+    private static final int MAGIC = 0x42414e4b; // "BANK"
+    private static final int VERSION = 2;
+
+    static final byte PLAIN = 0;
+    static final byte SAVINGS = 1;
+    static final byte CURRENT = 2;
+
+    private BankSnapshot() {
+    }
+
+    static byte kindOf(Account account) {
+        if (account instanceof SavingsAccount) {
+            return SAVINGS;
+        }
+        if (account instanceof CurrentAccount) {
+            return CURRENT;
+        }
+        return PLAIN;
+    }
+
+    static Account newAccount(byte kind, long accountNumber, long overdraftLimit, BigDecimal interestRate) {
+        switch (kind) {
+            case SAVINGS:
+                return new SavingsAccount(accountNumber, interestRate);
+            case CURRENT:
+                return new CurrentAccount(accountNumber, overdraftLimit);
+            case PLAIN:
+                return new Account(accountNumber);
+            default:
+                throw new IllegalStateException("Unknown account kind " + kind);
+        }
+    }
+
+    // Everything write needs that can still change, copied while no mutation is in flight: each
+    // account's balance, accrual day and history length. Rows below a captured length never change,
+    // so write reads them afterwards without holding up the bank.
+    static final class Capture {
+        final long lastSequence;
+        final Customer[] customers;
+        final int[] accountCounts;
+        final Account[] accounts;
+        final long[] balances;
+        final long[] lastAccrualDays;
+        final int[] rows;
+
+        private Capture(long lastSequence, Customer[] customers, int accountCount) {
+            this.lastSequence = lastSequence;
+            this.customers = customers;
+            this.accountCounts = new int[customers.length];
+            this.accounts = new Account[accountCount];
+            this.balances = new long[accountCount];
+            this.lastAccrualDays = new long[accountCount];
+            this.rows = new int[accountCount];
+        }
+    }
+
+    // Call with the journal's checkpoint lock held.
+    static Capture capture(Bank bank, long lastSequence) {
+        Customer[] customers = bank.getCustomers().toArray(new Customer[0]);
+        int accountCount = 0;
+        for (Customer customer : customers) {
+            accountCount += customer.getAccounts().size();
+        }
+        Capture capture = new Capture(lastSequence, customers, accountCount);
+        int i = 0;
+        for (int c = 0; c < customers.length; c++) {
+            for (Account account : customers[c].getAccounts()) {
+                capture.accounts[i] = account;
+                capture.balances[i] = account.getBalance();
+                capture.lastAccrualDays[i] = account instanceof SavingsAccount
+                        ? ((SavingsAccount) account).getLastAccrualDay() : 0;
+                capture.rows[i] = account.getTransactionHistory().size();
+                i++;
+            }
+            capture.accountCounts[c] = customers[c].getAccounts().size();
+        }
+        return capture;
+    }
+
+    // Writes to a temporary file and renames it into place, so a crash never leaves a partial snapshot.
+    static void write(Capture capture, Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                    1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(capture.lastSequence);
+            out.writeInt(capture.customers.length);
+            int i = 0;
+            for (int c = 0; c < capture.customers.length; c++) {
+                out.writeInt(capture.customers[c].getCustomerId());
+                out.writeUTF(capture.customers[c].getCustomerName());
+                out.writeInt(capture.accountCounts[c]);
+                for (int end = i + capture.accountCounts[c]; i < end; i++) {
+                    writeAccount(out, capture, i);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeAccount(DataOutputStream out, Capture capture, int i) throws IOException {
+        Account account = capture.accounts[i];
+        byte kind = kindOf(account);
+        out.writeByte(kind);
+        out.writeLong(account.getAccountNumber());
+        out.writeLong(capture.balances[i]);
+        if (kind == SAVINGS) {
+            out.writeUTF(((SavingsAccount) account).getInterestRate().toString());
+            out.writeLong(capture.lastAccrualDays[i]);
+        } else if (kind == CURRENT) {
+            out.writeLong(((CurrentAccount) account).getOverdraftLimit());
+        }
+        TransactionLog history = account.getTransactionHistory();
+        int rows = capture.rows[i];
+        out.writeInt(rows);
+        for (int row = 0; row < rows; row++) {
+            out.writeLong(history.getTimestamp(row));
+            out.writeByte(history.getType(row));
+            out.writeLong(history.getAmount(row));
+        }
+    }
+
+    // Loads the snapshot into bank and returns the journal sequence it covers (0 if there is none).
+    static long read(Path file, Bank bank) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a bank snapshot: " + file);
+            }
+            long lastSequence = in.readLong();
+            int customers = in.readInt();
+            for (int i = 0; i < customers; i++) {
+                Customer customer = new Customer(in.readInt(), in.readUTF());
+                bank.addCustomer(customer);
+                int accounts = in.readInt();
+                for (int j = 0; j < accounts; j++) {
+                    customer.addAccount(readAccount(in));
+                }
+            }
+            return lastSequence;
+        }
+    }
+
+    private static Account readAccount(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        long accountNumber = in.readLong();
+        long balance = in.readLong();
+        BigDecimal interestRate = kind == SAVINGS ? new BigDecimal(in.readUTF()) : null;
+        long lastAccrualDay = kind == SAVINGS ? in.readLong() : 0;
+        long overdraftLimit = kind == CURRENT ? in.readLong() : 0;
+        Account account = newAccount(kind, accountNumber, overdraftLimit, interestRate);
+        if (kind == SAVINGS) {
+            ((SavingsAccount) account).setLastAccrualDay(lastAccrualDay);
+        }
+        TransactionLog history = account.getTransactionHistory();
+        int rows = in.readInt();
+        for (int row = 0; row < rows; row++) {
+            history.append(in.readLong(), in.readByte(), in.readLong());
+        }
+        account.setBalance(balance);
+        return account;
+    }
+}
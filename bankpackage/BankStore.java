@@ -0,0 +1,118 @@
+package bankpackage;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+// Durable home for a Bank: a snapshot file plus a write-ahead journal in one directory.
+//
+// open() rebuilds the Bank from the latest snapshot and the journal tail, then attaches the journal.
+// A background thread writes and forces the journal every sync interval, or sooner when a batch of
+// records is waiting, and takes a new snapshot (dropping the journal segments it covers) once
+// checkpointEveryRecords records have piled up, which keeps the replay part of recovery bounded no
+// matter how long the bank has been running.
+public final class BankStore implements Closeable {
+    public static final int DEFAULT_SYNC_BATCH_SIZE = 256;
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10;
+    public static final long DEFAULT_CHECKPOINT_EVERY_RECORDS = 1_000_000;
+
+    private final Path snapshotFile;
+    private final Bank bank;
+    private final Journal journal;
+    private final long checkpointEveryRecords;
+    private final ScheduledExecutorService flusher;
+    private final long recoveryMillis;
+    private final long replayedRecords;
+
+    private BankStore(Path directory, int syncBatchSize, long syncIntervalMillis, long checkpointEveryRecords)
+            throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve("snapshot.bin");
+        this.checkpointEveryRecords = checkpointEveryRecords;
+
+        long start = System.nanoTime();
+        bank = new Bank();
+        long snapshotSequence = BankSnapshot.read(snapshotFile, bank);
+        Journal.Replay replay = Journal.replay(directory, snapshotSequence, bank);
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        replayedRecords = replay.records;
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bank-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        journal = Journal.open(directory, replay, syncBatchSize, this::requestFlush);
+        bank.setJournal(journal);
+        flusher.scheduleWithFixedDelay(this::flush, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static BankStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SYNC_BATCH_SIZE, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_EVERY_RECORDS);
+    }
+
+    public static BankStore open(Path directory, int syncBatchSize, long syncIntervalMillis,
+                                 long checkpointEveryRecords) throws IOException {
+        return new BankStore(directory, syncBatchSize, syncIntervalMillis, checkpointEveryRecords);
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    // Run by a mutating thread once a batch of records is waiting, so the write and force happen on
+    // the flusher instead.
+    private void requestFlush() {
+        try {
+            flusher.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // Closing; close() syncs whatever is left.
+        }
+    }
+
+    private void flush() {
+        try {
+            journal.sync();
+            if (journal.recordsSinceCheckpoint() >= checkpointEveryRecords) {
+                checkpoint();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Thrown on, it would cancel the periodic flush for good.
+            System.err.println("Journal flush failed: " + e);
+        }
+    }
+
+    // Only capturing the state holds up mutations; the snapshot is written after they resume.
+    public synchronized void checkpoint() throws IOException {
+        BankSnapshot.Capture capture;
+        journal.checkpointLock().lock();
+        try {
+            capture = BankSnapshot.capture(bank, journal.rotate());
+        } finally {
+            journal.checkpointLock().unlock();
+        }
+        BankSnapshot.write(capture, snapshotFile);
+        journal.deleteSegmentsThrough(capture.lastSequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+        bank.setJournal(null);
+        journal.close();
+    }
+}
@@ -0,0 +1,297 @@
+package bankpackage;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+// Replays a file of banking commands against a Bank without any prompting.
+//
+// One command per line, comma separated; blank lines and lines starting with '#' are ignored:
+//
+//   add-customer,<customerId>,<name>
+//   add-account,<customerId>,savings,<accountNumber>,<interestRate>
+//   add-account,<customerId>,current,<accountNumber>,<overdraftLimit>
+//   deposit,<accountNumber>,<amount>
+//   withdraw,<accountNumber>,<amount>
+//   transfer,<sourceAccountNumber>,<targetAccountNumber>,<amount>
+//   apply-interest,<accountNumber>
+//
+// Amounts are rupees with at most two decimal places. Lines are parsed straight out of a reusable
+// byte buffer and accounts are looked up without boxing, so the hot commands (deposit, withdraw,
+// transfer) allocate nothing per line beyond the history rows they append.
+public final class BatchProcessor {
+    static final int ADD_CUSTOMER = 0;
+    static final int ADD_ACCOUNT = 1;
+    static final int DEPOSIT = 2;
+    static final int WITHDRAW = 3;
+    static final int TRANSFER = 4;
+    static final int APPLY_INTEREST = 5;
+
+    static final String[] COMMANDS = {"add-customer", "add-account", "deposit", "withdraw", "transfer",
+            "apply-interest"};
+    private static final byte[][] COMMAND_BYTES = new byte[COMMANDS.length][];
+    private static final byte[] SAVINGS = "savings".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CURRENT = "current".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            COMMAND_BYTES[i] = COMMANDS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_FIELDS = 5;
+
+    private final Bank bank;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private int fieldCount;
+
+    public BatchProcessor(Bank bank) {
+        this.bank = bank;
+    }
+
+    public BatchSummary process(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return process(in);
+        }
+    }
+
+    public BatchSummary process(InputStream in) throws IOException {
+        BatchSummary summary = new BatchSummary();
+        long start = System.nanoTime();
+        int filled = 0;
+        long lineNumber = 0;
+        while (true) {
+            int read = in.read(buffer, filled, BUFFER_SIZE - filled);
+            boolean eof = read < 0;
+            if (!eof) {
+                filled += read;
+                summary.bytes += read;
+            }
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (buffer[i] == '\n') {
+                    processLine(lineStart, i, ++lineNumber, summary);
+                    lineStart = i + 1;
+                }
+            }
+            if (eof) {
+                if (lineStart < filled) {
+                    processLine(lineStart, filled, ++lineNumber, summary);
+                }
+                break;
+            }
+            if (lineStart == 0 && filled == BUFFER_SIZE) {
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than " + BUFFER_SIZE + " bytes");
+            }
+            System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+            filled -= lineStart;
+        }
+        summary.lines = lineNumber;
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private void processLine(int start, int end, long lineNumber, BatchSummary summary) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        if (end == start || buffer[start] == '#') {
+            return;
+        }
+        int command = -1;
+        try {
+            split(start, end);
+            command = command();
+            if (command < 0) {
+                summary.fail(lineNumber, "unknown command");
+                return;
+            }
+            summary.counts[command]++;
+            String failure = execute(command);
+            if (failure != null) {
+                summary.fail(lineNumber, failure);
+            }
+        } catch (RuntimeException e) {
+            summary.fail(lineNumber, "malformed " + (command < 0 ? "line" : COMMANDS[command]) + ": " + e.getMessage());
+        }
+    }
+
+    private String execute(int command) {
+        switch (command) {
+            case ADD_CUSTOMER: {
+                expectFields(3);
+                int customerId = Math.toIntExact(parseLong(1));
+                if (bank.findCustomerById(customerId) != null) {
+                    return "duplicate customer " + customerId;
+                }
+                bank.addCustomer(new Customer(customerId, text(2)));
+                return null;
+            }
+            case ADD_ACCOUNT: {
+                expectFields(5);
+                Customer customer = bank.findCustomerById(Math.toIntExact(parseLong(1)));
+                if (customer == null) {
+                    return "customer not found";
+                }
+                long accountNumber = parseLong(3);
+                Account account;
+                if (fieldEquals(2, SAVINGS)) {
+                    account = new SavingsAccount(accountNumber, new BigDecimal(text(4)));
+                } else if (fieldEquals(2, CURRENT)) {
+                    account = new CurrentAccount(accountNumber, parseAmount(4));
+                } else {
+                    return "invalid account type";
+                }
+                return customer.addAccount(account) ? null : "duplicate account " + accountNumber;
+            }
+            case DEPOSIT: {
+                expectFields(3);
+                Account account = bank.findAccount(parseLong(1));
+                if (account == null) {
+                    return "account not found";
+                }
+                account.deposit(parseAmount(2));
+                return null;
+            }
+            case WITHDRAW: {
+                expectFields(3);
+                Account account = bank.findAccount(parseLong(1));
+                if (account == null) {
+                    return "account not found";
+                }
+                return account.withdraw(parseAmount(2)) ? null : "withdrawal declined";
+            }
+            case TRANSFER: {
+                expectFields(4);
+                Account source = bank.findAccount(parseLong(1));
+                Account target = bank.findAccount(parseLong(2));
+                if (source == null || target == null) {
+                    return "account not found";
+                }
+                return source.transferFunds(target, parseAmount(3)) ? null : "transfer declined";
+            }
+            case APPLY_INTEREST: {
+                expectFields(2);
+                Account account = bank.findAccount(parseLong(1));
+                if (!(account instanceof SavingsAccount)) {
+                    return "savings account not found";
+                }
+                ((SavingsAccount) account).applyInterest();
+                return null;
+            }
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private void split(int start, int end) {
+        fieldCount = 0;
+        fieldStart[0] = start;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == ',') {
+                if (fieldCount == MAX_FIELDS - 1) {
+                    throw new IllegalArgumentException("too many fields");
+                }
+                fieldEnd[fieldCount++] = i;
+                fieldStart[fieldCount] = i + 1;
+            }
+        }
+        fieldEnd[fieldCount++] = end;
+    }
+
+    private int command() {
+        for (int i = 0; i < COMMAND_BYTES.length; i++) {
+            if (fieldEquals(0, COMMAND_BYTES[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void expectFields(int count) {
+        if (fieldCount != count) {
+            throw new IllegalArgumentException("expected " + count + " fields but found " + fieldCount);
+        }
+    }
+
+    private boolean fieldEquals(int field, byte[] expected) {
+        int start = fieldStart[field];
+        int length = fieldEnd[field] - start;
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[start + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String text(int field) {
+        return new String(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8).trim();
+    }
+
+    private long parseLong(int field) {
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("empty number in field " + field);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("bad digit in field " + field);
+            }
+            value = Math.addExact(Math.multiplyExact(value, 10), digit);
+        }
+        return negative ? -value : value;
+    }
+
+    // Parses "123", "123.4" or "123.45" straight into paise.
+    private long parseAmount(int field) {
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+        long rupees = 0;
+        long paise = 0;
+        int fractionDigits = -1;
+        if (i == end) {
+            throw new NumberFormatException("empty amount in field " + field);
+        }
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("bad amount in field " + field);
+            }
+            if (fractionDigits < 0) {
+                rupees = Math.addExact(Math.multiplyExact(rupees, 10), digit);
+            } else if (++fractionDigits <= Money.SCALE) {
+                paise = paise * 10 + digit;
+            } else {
+                throw new NumberFormatException("more than " + Money.SCALE + " decimal places in field " + field);
+            }
+        }
+        if (fractionDigits == 1) {
+            paise *= 10;
+        }
+        return Math.addExact(Money.ofRupees(rupees), paise);
+    }
+}
@@ -0,0 +1,72 @@
+package bankpackage;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class BatchSummary {
+    private static final int MAX_REPORTED_FAILURES = 20;
+
+    final long[] counts = new long[BatchProcessor.COMMANDS.length];
+    long lines;
+    long bytes;
+    long failures;
+    long elapsedNanos;
+    private final ArrayList<String> failureSamples = new ArrayList<>();
+
+    void fail(long lineNumber, String reason) {
+        failures++;
+        if (failureSamples.size() < MAX_REPORTED_FAILURES) {
+            failureSamples.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getCount(String command) {
+        int index = Arrays.asList(BatchProcessor.COMMANDS).indexOf(command);
+        return index < 0 ? 0 : counts[index];
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    // The first few failures, for diagnostics.
+    public List<String> getFailureSamples() {
+        return failureSamples;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double getLinesPerSecond() {
+        return elapsedNanos == 0 ? 0 : lines * 1e9 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos / (1 << 20);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("===== Batch Summary =====\n");
+        for (int i = 0; i < counts.length; i++) {
+            sb.append(String.format("%-15s %,d%n", BatchProcessor.COMMANDS[i], counts[i]));
+        }
+        sb.append(String.format("%-15s %,d%n", "lines", lines));
+        sb.append(String.format("%-15s %,d%n", "failures", failures));
+        for (String failure : failureSamples) {
+            sb.append("  ").append(failure).append('\n');
+        }
+        if (failures > failureSamples.size()) {
+            sb.append("  ...\n");
+        }
+        sb.append(String.format("Processed in %,d ms (%,.0f lines/s, %.1f MB/s)%n", getElapsedMillis(),
+                getLinesPerSecond(), getMegabytesPerSecond()));
+        return sb.toString();
+    }
+}
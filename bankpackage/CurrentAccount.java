@@ -1,26 +1,33 @@
 package bankpackage;
 
-import java.util.*;
-
 public class CurrentAccount extends Account {
-    private double overdraftLimit;
+    private long overdraftLimit;
 
-    public CurrentAccount(long accountNumber, double overdraftLimit) {
+    public CurrentAccount(long accountNumber, long overdraftLimit) {
         super(accountNumber);
         this.overdraftLimit = overdraftLimit;
     }
 
+    public long getOverdraftLimit() {
+        return overdraftLimit;
+    }
+
+    @Override
+    boolean canWithdraw(long balance, long amount) {
+        return amount > 0 && balance + overdraftLimit >= amount;
+    }
+
+    @Override
+    byte withdrawalType() {
+        return Transaction.OVERDRAFT_WITHDRAWAL;
+    }
+
     @Override
-    public boolean withdraw(double amount) {
-        if (getBalance() + overdraftLimit >= amount) {
-            setBalance(getBalance() - amount);
-            Transaction transaction = new Transaction(new Date(), "Withdrawal (Overdraft)", -amount);
-            getTransactionHistory().add(transaction);
-            System.out.println("Withdrawal (Overdraft) successful.");
-            return true;
+    void publishWithdrawal(boolean withdrawn, long amount) {
+        if (withdrawn) {
+            events().publish(AccountEvent.OVERDRAFT_WITHDRAWAL, getAccountNumber(), amount);
         } else {
-            System.out.println("Error: Exceeds overdraft limit.");
-            return false;
+            events().publish(AccountEvent.OVERDRAFT_LIMIT_EXCEEDED, getAccountNumber(), amount);
         }
     }
 }
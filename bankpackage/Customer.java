@@ -6,6 +6,7 @@ public class Customer {
     private int customerId;
     private String customerName;
     private ArrayList<Account> accounts;
+    private Bank bank;
 
     public Customer(int customerId, String customerName) {
         this.customerId = customerId;
@@ -30,8 +31,37 @@ public class Customer {
         return customerName;
     }
 
-    public void addAccount(Account account) {
-        accounts.add(account);
+    void setBank(Bank bank) {
+        this.bank = bank;
+    }
+
+    // Returns false, changing nothing, if the account number is already in use (in the bank, or by
+    // this customer while it is not yet in one).
+    public boolean addAccount(Account account) {
+        Bank bank = this.bank;
+        Journal journal = bank != null ? bank.beginMutation() : null;
+        try {
+            synchronized (this) {
+                if (bank != null ? !bank.registerAccount(account, customerId, journal)
+                        : findOwnAccount(account.getAccountNumber()) != null) {
+                    return false;
+                }
+                accounts.add(account);
+                account.setOwner(this);
+                return true;
+            }
+        } finally {
+            Journal.endMutation(journal);
+        }
+    }
+
+    private Account findOwnAccount(long accountNumber) {
+        for (Account account : accounts) {
+            if (account.getAccountNumber() == accountNumber) {
+                return account;
+            }
+        }
+        return null;
     }
 
     public ArrayList<Account> getAccounts() {
@@ -48,18 +78,35 @@ public class Customer {
     }
 
     public void deleteAccount(long accountNumber) {
-        Account accountToDelete = null;
-        for (Account account : accounts) {
-            if (account.getAccountNumber() == accountNumber) {
-                accountToDelete = account;
-                break;
-            }
-        }
-        if (accountToDelete != null) {
-            accounts.remove(accountToDelete);
-            System.out.println("Account deleted successfully.");
+        Bank bank = this.bank;
+        EventSink events = bank != null ? bank.getEventSink() : EventSink.CONSOLE;
+        if (removeAccount(accountNumber) != null) {
+            events.publish(AccountEvent.ACCOUNT_DELETED, accountNumber, 0);
         } else {
-            System.out.println("Account not found.");
+            events.publish(AccountEvent.ACCOUNT_NOT_FOUND, accountNumber, 0);
+        }
+    }
+
+    Account removeAccount(long accountNumber) {
+        Bank bank = this.bank;
+        Journal journal = bank != null ? bank.beginMutation() : null;
+        try {
+            synchronized (this) {
+                Account accountToDelete = findOwnAccount(accountNumber);
+                if (accountToDelete != null) {
+                    accounts.remove(accountToDelete);
+                    accountToDelete.setOwner(null);
+                    if (bank != null) {
+                        bank.unregisterAccount(accountToDelete);
+                    }
+                    if (journal != null) {
+                        journal.logDeleteAccount(customerId, accountNumber);
+                    }
+                }
+                return accountToDelete;
+            }
+        } finally {
+            Journal.endMutation(journal);
         }
     }
 }
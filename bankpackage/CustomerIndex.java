@@ -0,0 +1,64 @@
+package bankpackage;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Open-addressing hash table from customer id to Customer, the counterpart of AccountIndex. Entries are
+// keyed by the customer's own id, so a lookup neither boxes the key nor allocates. Lookups take no
+// lock; writers serialize on the index, and growing it publishes a rebuilt table. Customers are never
+// removed from a bank, so there are no removal markers.
+final class CustomerIndex {
+    private volatile AtomicReferenceArray<Customer> table = new AtomicReferenceArray<>(64);
+    private int size; // guarded by this
+
+    private static int slot(int customerId, int mask) {
+        long mixed = customerId * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    Customer get(int customerId) {
+        AtomicReferenceArray<Customer> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = slot(customerId, mask); ; i = (i + 1) & mask) {
+            Customer customer = table.get(i);
+            if (customer == null || customer.getCustomerId() == customerId) {
+                return customer;
+            }
+        }
+    }
+
+    // Adds customer unless its id is already taken, in which case the existing customer is returned.
+    synchronized Customer putIfAbsent(Customer customer) {
+        int customerId = customer.getCustomerId();
+        AtomicReferenceArray<Customer> table = this.table;
+        int mask = table.length() - 1;
+        int i = slot(customerId, mask);
+        for (Customer existing; (existing = table.get(i)) != null; i = (i + 1) & mask) {
+            if (existing.getCustomerId() == customerId) {
+                return existing;
+            }
+        }
+        table.set(i, customer);
+        if (++size * 2 > table.length()) {
+            rebuild();
+        }
+        return null;
+    }
+
+    // Keeps the table at most a quarter full.
+    private void rebuild() {
+        AtomicReferenceArray<Customer> old = table;
+        AtomicReferenceArray<Customer> rebuilt = new AtomicReferenceArray<>(old.length() * 2);
+        int mask = rebuilt.length() - 1;
+        for (int i = 0; i < old.length(); i++) {
+            Customer customer = old.get(i);
+            if (customer != null) {
+                int j = slot(customer.getCustomerId(), mask);
+                while (rebuilt.get(j) != null) {
+                    j = (j + 1) & mask;
+                }
+                rebuilt.set(j, customer);
+            }
+        }
+        table = rebuilt;
+    }
+}
@@ -0,0 +1,15 @@
+package bankpackage;
+
+// Receives the outcome of account operations. Bank defaults to CONSOLE, which prints the same messages
+// the menu always has; use NO_OP for benchmarks and bulk runs, or FileEventSink for auditing.
+public interface EventSink {
+    EventSink NO_OP = (event, accountNumber, amount) -> {
+    };
+
+    EventSink CONSOLE = (event, accountNumber, amount) -> System.out.println(event.getMessage());
+
+    void publish(AccountEvent event, long accountNumber, long amount);
+
+    default void close() {
+    }
+}
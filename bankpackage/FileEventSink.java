@@ -0,0 +1,98 @@
+package bankpackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+// Appends one CSV line per event (epoch millis, event, account number, amount in rupees) to an audit
+// file. Lines are encoded straight into a reusable byte buffer, which is written out when it fills up
+// and once per drained batch rather than once per event.
+public class FileEventSink extends AsyncEventSink {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int MAX_LINE = 128;
+    private static final byte[][] EVENT_NAMES = new byte[AccountEvent.values().length][];
+
+    static {
+        for (AccountEvent event : AccountEvent.values()) {
+            EVENT_NAMES[event.ordinal()] = event.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private final byte[] digits = new byte[20];
+    private int position;
+
+    public FileEventSink(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    public FileEventSink(Path file, int capacity) throws IOException {
+        super(capacity, "bank-audit-writer");
+        this.out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    protected void handle(AccountEvent event, long accountNumber, long amount, long timestamp) throws IOException {
+        if (position > buffer.length - MAX_LINE) {
+            writeBuffer();
+        }
+        appendLong(timestamp);
+        buffer[position++] = ',';
+        byte[] name = EVENT_NAMES[event.ordinal()];
+        System.arraycopy(name, 0, buffer, position, name.length);
+        position += name.length;
+        buffer[position++] = ',';
+        appendLong(accountNumber);
+        buffer[position++] = ',';
+        if (amount < 0) {
+            buffer[position++] = '-';
+        }
+        long paise = Math.abs(amount);
+        appendLong(paise / Money.PAISE_PER_RUPEE);
+        long fraction = paise % Money.PAISE_PER_RUPEE;
+        buffer[position++] = '.';
+        buffer[position++] = (byte) ('0' + fraction / 10);
+        buffer[position++] = (byte) ('0' + fraction % 10);
+        buffer[position++] = '\n';
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            byte[] text = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(text, 0, buffer, position, text.length);
+            position += text.length;
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            buffer[position++] = digits[--count];
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    protected void endOfBatch() throws IOException {
+        writeBuffer();
+        out.flush();
+    }
+
+    @Override
+    protected void closeResources() throws IOException {
+        writeBuffer();
+        out.close();
+    }
+}
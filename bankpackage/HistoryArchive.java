@@ -0,0 +1,139 @@
+package bankpackage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+// Cold tier for transaction history. Once a TransactionLog has more than hotChunks full chunks on
+// the heap, the oldest are copied into a memory-mapped segment file and the log reads them from
+// there from then on. Accounts are spread over a fixed number of SEGMENTS by a hash of the account
+// number, so open files and mappings stay bounded however sparse the numbering is. Each segment maps
+// its file in windows that start small and double up to MAX_WINDOW_SIZE as it fills. Segments are
+// append-only and a chunk is never rewritten once spilled.
+//
+// Segments only hold a copy of history the bank can always rebuild (the snapshot and journal still
+// contain every row), so open() starts from an empty directory and nothing is ever synced. Closing
+// keeps every spilled chunk readable (a mapping outlives its channel) and ends spilling: logs keep
+// their newer chunks on the heap from then on.
+//
+// What stays on the heap for a spilled chunk of CHUNK_SIZE rows is its slot in the log, a small
+// wrapper and a read-only view of the mapping, about 100 bytes against 17 KB of columns. Windows
+// are never unmapped, so the archive holds as much address space as its files are long.
+public final class HistoryArchive implements Closeable {
+    public static final int DEFAULT_HOT_CHUNKS = 1;
+    static final int SEGMENTS = 64;
+    private static final long FIRST_WINDOW_SIZE = 256L << 10;
+    private static final long MAX_WINDOW_SIZE = 16L << 20;
+
+    private final Path directory;
+    private final int hotChunks;
+    private final Segment[] segments = new Segment[SEGMENTS]; // created on first spill, guarded by this
+    private boolean closed; // guarded by this
+
+    private HistoryArchive(Path directory, int hotChunks) {
+        this.directory = directory;
+        this.hotChunks = hotChunks;
+    }
+
+    public static HistoryArchive open(Path directory) throws IOException {
+        return open(directory, DEFAULT_HOT_CHUNKS);
+    }
+
+    // hotChunks full chunks of TransactionLog.CHUNK_SIZE rows, plus the one being filled, stay on the
+    // heap for every account.
+    public static HistoryArchive open(Path directory, int hotChunks) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "history-*.seg")) {
+            for (Path file : stale) {
+                Files.delete(file);
+            }
+        }
+        return new HistoryArchive(directory, Math.max(0, hotChunks));
+    }
+
+    int getHotChunks() {
+        return hotChunks;
+    }
+
+    // Copies one full chunk into the account's segment and returns a read-only view of it, laid out
+    // as CHUNK_SIZE timestamps, then CHUNK_SIZE amounts, then CHUNK_SIZE type bytes. Returns null,
+    // copying nothing, once the archive is closed.
+    ByteBuffer spill(long accountNumber, long[] timestamps, byte[] types, long[] amounts) {
+        long mixed = accountNumber * 0x9E3779B97F4A7C15L;
+        Segment segment = segment(Math.floorMod(mixed ^ (mixed >>> 32), SEGMENTS));
+        return segment == null ? null : segment.append(timestamps, types, amounts);
+    }
+
+    private synchronized Segment segment(int index) {
+        if (closed) {
+            return null;
+        }
+        Segment segment = segments[index];
+        if (segment == null) {
+            segment = new Segment(directory.resolve("history-" + index + ".seg"));
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        for (int i = 0; i < SEGMENTS; i++) {
+            if (segments[i] != null) {
+                segments[i].close();
+                segments[i] = null;
+            }
+        }
+    }
+
+    private static final class Segment implements Closeable {
+        private final FileChannel channel;
+        private boolean closed; // guarded by this, like the fields below
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long windowSize;
+
+        Segment(Path file) {
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Null once closed: a new window could not be mapped, and starting over at offset 0 would
+        // overwrite chunks that are still being read.
+        synchronized ByteBuffer append(long[] timestamps, byte[] types, long[] amounts) {
+            if (closed) {
+                return null;
+            }
+            int length = timestamps.length * 17;
+            if (window == null || window.remaining() < length) {
+                // Chunks never straddle windows; the few bytes left at the end of one are skipped.
+                windowStart += windowSize;
+                windowSize = windowSize == 0 ? FIRST_WINDOW_SIZE : Math.min(windowSize * 2, MAX_WINDOW_SIZE);
+                try {
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int start = window.position();
+            window.asLongBuffer().put(timestamps).put(amounts);
+            window.position(start + timestamps.length * 16);
+            window.put(types);
+            // The mapping outlives the channel and stays valid as long as any chunk refers to it.
+            return window.slice(start, length).asReadOnlyBuffer();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package bankpackage;
+
+import java.time.LocalDate;
+
+public class InterestAccrualReport {
+    private final LocalDate businessDate;
+    private final long accountsProcessed;
+    private final long accountsSkipped;
+    private final long totalInterest;
+    private final long elapsedMillis;
+
+    InterestAccrualReport(LocalDate businessDate, long accountsProcessed, long accountsSkipped, long totalInterest,
+                          long elapsedMillis) {
+        this.businessDate = businessDate;
+        this.accountsProcessed = accountsProcessed;
+        this.accountsSkipped = accountsSkipped;
+        this.totalInterest = totalInterest;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LocalDate getBusinessDate() {
+        return businessDate;
+    }
+
+    public long getAccountsProcessed() {
+        return accountsProcessed;
+    }
+
+    // Accounts already accrued for this date, or with a negative rate.
+    public long getAccountsSkipped() {
+        return accountsSkipped;
+    }
+
+    public long getTotalInterest() {
+        return totalInterest;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Interest accrual for " + businessDate + ": " + accountsProcessed + " accounts, "
+                + accountsSkipped + " skipped, total ₹" + Money.format(totalInterest) + " in " + elapsedMillis + " ms";
+    }
+}
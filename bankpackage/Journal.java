@@ -0,0 +1,475 @@
+package bankpackage;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Binary write-ahead log of every change to a Bank, kept as a run of segment files named after the
+// sequence number of their first record.
+//
+// Frame layout: int payloadLength, int crc32(payload), then the payload itself, which starts with
+// the record's long sequence number and byte opcode. Mutating threads only stage frames in a heap
+// buffer. BankStore's flusher thread swaps that buffer for a spare, then writes and forces it without
+// holding up appends; it runs every sync interval and as soon as syncBatchSize records are pending.
+//
+// Mutations hold the read side of the checkpoint lock while they change state and log it, so a
+// checkpoint (which takes the write side) sees a Bank that matches the log exactly. It starts a new
+// segment at that point, and the older ones are deleted once the snapshot covering them is durable.
+final class Journal implements Closeable {
+    static final byte POSTING = 1;
+    static final byte TRANSFER = 2;
+    static final byte ADD_CUSTOMER = 3;
+    static final byte DELETE_ACCOUNT = 5;
+    static final byte ACCRUAL = 6;
+    static final byte OPEN_ACCOUNT = 7;
+    static final byte HISTORY = 8;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int ROW_SIZE = 17;
+    private static final int ROWS_PER_FRAME = 16384;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-\\d+\\.log");
+
+    private final Path directory;
+    private final int syncBatchSize;
+    private final Runnable syncRequest;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock writeLock = new ReentrantLock(); // taken before appendLock
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); // guarded by appendLock
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE); // guarded by writeLock
+    private final CRC32 crc = new CRC32();
+    private long lastSequence;
+    private int pendingRecords;
+    private boolean syncRequested;
+    private long recordsSinceCheckpoint;
+    private FileChannel channel; // guarded by writeLock, like the fields below
+    private long segmentStart;
+    private boolean unsynced;
+
+    private Journal(Path directory, long lastSequence, int syncBatchSize, Runnable syncRequest) {
+        this.directory = directory;
+        this.lastSequence = lastSequence;
+        this.syncBatchSize = syncBatchSize;
+        this.syncRequest = syncRequest;
+    }
+
+    // Appends go to a new segment after the records replay found. syncRequest is run, outside every
+    // journal lock, when syncBatchSize records are waiting; it should get sync() called soon.
+    static Journal open(Path directory, Replay replay, int syncBatchSize, Runnable syncRequest) throws IOException {
+        if (replay.tornSegment != null) {
+            // Drop a torn tail left behind by a crash mid-write, and anything logged after it.
+            try (FileChannel torn = FileChannel.open(replay.tornSegment, StandardOpenOption.WRITE)) {
+                torn.truncate(replay.validLength);
+                torn.force(true);
+            }
+            long tornStart = segmentStart(replay.tornSegment);
+            for (Path segment : segments(directory)) {
+                if (segmentStart(segment) > tornStart) {
+                    Files.delete(segment);
+                }
+            }
+        }
+        Journal journal = new Journal(directory, replay.lastSequence, syncBatchSize, syncRequest);
+        journal.openSegment(replay.lastSequence + 1);
+        return journal;
+    }
+
+    private void openSegment(long start) throws IOException {
+        channel = FileChannel.open(directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentStart = start;
+    }
+
+    // Every segment in directory, oldest first.
+    private static ArrayList<Path> segments(Path directory) throws IOException {
+        ArrayList<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                    .forEach(segments::add);
+        }
+        segments.sort(Comparator.comparingLong(Journal::segmentStart));
+        return segments;
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    void beginMutation() {
+        checkpointLock.readLock().lock();
+    }
+
+    void endMutation() {
+        checkpointLock.readLock().unlock();
+    }
+
+    static void endMutation(Journal journal) {
+        if (journal != null) {
+            journal.endMutation();
+        }
+    }
+
+    ReentrantReadWriteLock.WriteLock checkpointLock() {
+        return checkpointLock.writeLock();
+    }
+
+    long recordsSinceCheckpoint() {
+        return recordsSinceCheckpoint;
+    }
+
+    void logPosting(long accountNumber, byte type, long amount, long timestamp) {
+        int start = beginFrame(POSTING, 25);
+        buffer.putLong(timestamp).putLong(accountNumber).put(type).putLong(amount);
+        endFrame(start);
+    }
+
+    void logTransfer(long sourceAccountNumber, long targetAccountNumber, byte withdrawalType, long amount,
+                     long timestamp) {
+        int start = beginFrame(TRANSFER, 33);
+        buffer.putLong(timestamp).putLong(sourceAccountNumber).putLong(targetAccountNumber).put(withdrawalType)
+                .putLong(amount);
+        endFrame(start);
+    }
+
+    void logAccrual(long accountNumber, long epochDay, long amount, long timestamp) {
+        int start = beginFrame(ACCRUAL, 32);
+        buffer.putLong(timestamp).putLong(accountNumber).putLong(epochDay).putLong(amount);
+        endFrame(start);
+    }
+
+    void logAddCustomer(int customerId, String customerName) {
+        byte[] name = customerName.getBytes(StandardCharsets.UTF_8);
+        int start = beginFrame(ADD_CUSTOMER, 8 + name.length);
+        buffer.putInt(customerId).putInt(name.length).put(name);
+        endFrame(start);
+    }
+
+    // An account may already hold money and history when it is added, so its balance and rows are
+    // logged with it: the first ROWS_PER_FRAME rows in the OPEN_ACCOUNT record and the rest in HISTORY
+    // records straight after. Callers must hold the account lock so no posting lands in between.
+    void logAddAccount(int customerId, Account account) {
+        byte kind = BankSnapshot.kindOf(account);
+        byte[] rate = account instanceof SavingsAccount
+                ? ((SavingsAccount) account).getInterestRate().toString().getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        long overdraftLimit = account instanceof CurrentAccount ? ((CurrentAccount) account).getOverdraftLimit() : 0;
+        long lastAccrualDay = account instanceof SavingsAccount ? ((SavingsAccount) account).getLastAccrualDay() : 0;
+        TransactionLog history = account.getTransactionHistory();
+        int rows = history.size();
+        int firstRows = Math.min(rows, ROWS_PER_FRAME);
+        int start = beginFrame(OPEN_ACCOUNT, 45 + rate.length + firstRows * ROW_SIZE);
+        buffer.putInt(customerId).put(kind).putLong(account.getAccountNumber()).putLong(overdraftLimit)
+                .putInt(rate.length).put(rate).putLong(account.getBalance()).putLong(lastAccrualDay);
+        putRows(history, 0, firstRows);
+        endFrame(start);
+        for (int from = firstRows; from < rows; from += ROWS_PER_FRAME) {
+            int to = Math.min(rows, from + ROWS_PER_FRAME);
+            start = beginFrame(HISTORY, 12 + (to - from) * ROW_SIZE);
+            buffer.putLong(account.getAccountNumber());
+            putRows(history, from, to);
+            endFrame(start);
+        }
+    }
+
+    private void putRows(TransactionLog history, int from, int to) {
+        buffer.putInt(to - from);
+        for (int row = from; row < to; row++) {
+            buffer.putLong(history.getTimestamp(row)).put(history.getType(row)).putLong(history.getAmount(row));
+        }
+    }
+
+    void logDeleteAccount(int customerId, long accountNumber) {
+        int start = beginFrame(DELETE_ACCOUNT, 12);
+        buffer.putInt(customerId).putLong(accountNumber);
+        endFrame(start);
+    }
+
+    // Returns with appendLock held; endFrame releases it.
+    private int beginFrame(byte op, int bodySize) {
+        int frameSize = HEADER_SIZE + 9 + bodySize;
+        if (frameSize > BUFFER_SIZE) {
+            throw new IllegalArgumentException("Journal record too large: " + frameSize + " bytes");
+        }
+        appendLock.lock();
+        while (buffer.remaining() < frameSize) {
+            // The flusher has fallen a whole buffer behind; write it out here rather than overflow.
+            appendLock.unlock();
+            writeLock.lock();
+            try {
+                writePending();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                writeLock.unlock();
+            }
+            appendLock.lock();
+        }
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        buffer.putLong(++lastSequence).put(op);
+        return start;
+    }
+
+    private void endFrame(int start) {
+        boolean requestSync = false;
+        try {
+            int end = buffer.position();
+            int length = end - start - HEADER_SIZE;
+            crc.reset();
+            crc.update(buffer.array(), start + HEADER_SIZE, length);
+            buffer.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+            recordsSinceCheckpoint++;
+            if (++pendingRecords >= syncBatchSize && !syncRequested) {
+                syncRequested = true;
+                requestSync = true;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (requestSync) {
+            syncRequest.run();
+        }
+    }
+
+    // Swaps the staged frames for the empty spare buffer and writes them, so appends carry on while
+    // the write is in progress. Called with writeLock held.
+    private void writePending() throws IOException {
+        ByteBuffer full;
+        appendLock.lock();
+        try {
+            full = buffer;
+            buffer = spare;
+            pendingRecords = 0;
+            syncRequested = false;
+        } finally {
+            appendLock.unlock();
+        }
+        spare = full;
+        full.flip();
+        unsynced |= full.hasRemaining();
+        while (full.hasRemaining()) {
+            channel.write(full);
+        }
+        full.clear();
+    }
+
+    void sync() throws IOException {
+        writeLock.lock();
+        try {
+            writePending();
+            if (unsynced) {
+                channel.force(false);
+                unsynced = false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Only called with the checkpoint lock held. Makes every record so far durable, moves appends to
+    // a new segment unless the current one is still empty, and returns the last record's sequence.
+    long rotate() throws IOException {
+        writeLock.lock();
+        try {
+            sync();
+            if (segmentStart <= lastSequence) {
+                channel.close();
+                openSegment(lastSequence + 1);
+            }
+            recordsSinceCheckpoint = 0;
+            return lastSequence;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Deletes the segments holding only records up to sequence, once a snapshot covers them.
+    void deleteSegmentsThrough(long sequence) throws IOException {
+        for (Path segment : segments(directory)) {
+            if (segmentStart(segment) <= sequence) {
+                Files.delete(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            sync();
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    static final class Replay {
+        long lastSequence;
+        long records;
+        Path tornSegment; // where replay stopped at a truncated or corrupt frame, if it did
+        long validLength; // of tornSegment
+    }
+
+    // Applies every intact record newer than afterSequence to bank, which must not have a journal
+    // attached yet, and stops at the first truncated or corrupt frame. Segments are read through a
+    // window that holds any whole frame, so their size is not limited by what one mapping can cover.
+    static Replay replay(Path directory, long afterSequence, Bank bank) throws IOException {
+        Replay replay = new Replay();
+        replay.lastSequence = afterSequence;
+        if (!Files.isDirectory(directory)) {
+            return replay;
+        }
+        ByteBuffer window = ByteBuffer.allocate(2 * BUFFER_SIZE);
+        CRC32 crc = new CRC32();
+        for (Path segment : segments(directory)) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                long validLength = replaySegment(channel, afterSequence, bank, replay, window, crc);
+                if (validLength < channel.size()) {
+                    replay.tornSegment = segment;
+                    replay.validLength = validLength;
+                    break;
+                }
+            }
+        }
+        return replay;
+    }
+
+    // Returns the length of the segment's intact prefix.
+    private static long replaySegment(FileChannel channel, long afterSequence, Bank bank, Replay replay,
+                                      ByteBuffer window, CRC32 crc) throws IOException {
+        long validLength = 0;
+        window.clear().limit(0);
+        while (fill(channel, window, HEADER_SIZE)) {
+            int start = window.position();
+            int length = window.getInt(start);
+            int checksum = window.getInt(start + 4);
+            if (length < 9 || length > BUFFER_SIZE - HEADER_SIZE || !fill(channel, window, HEADER_SIZE + length)) {
+                break;
+            }
+            start = window.position(); // fill may have moved the frame to the front of the window
+            ByteBuffer payload = window.slice(start + HEADER_SIZE, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            long sequence = payload.getLong();
+            byte op = payload.get();
+            if (sequence > afterSequence) {
+                apply(bank, op, payload);
+                replay.lastSequence = sequence;
+                replay.records++;
+            }
+            window.position(start + HEADER_SIZE + length);
+            validLength += HEADER_SIZE + length;
+        }
+        return validLength;
+    }
+
+    // Reads on until window has at least bytes left to consume; false if the segment ends first.
+    private static boolean fill(FileChannel channel, ByteBuffer window, int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return true;
+        }
+        window.compact();
+        try {
+            while (window.position() < bytes) {
+                if (channel.read(window) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            window.flip();
+        }
+    }
+
+    private static void apply(Bank bank, byte op, ByteBuffer payload) {
+        switch (op) {
+            case POSTING: {
+                long timestamp = payload.getLong();
+                Account account = bank.findAccount(payload.getLong());
+                byte type = payload.get();
+                account.restore(timestamp, type, payload.getLong());
+                break;
+            }
+            case TRANSFER: {
+                long timestamp = payload.getLong();
+                Account source = bank.findAccount(payload.getLong());
+                Account target = bank.findAccount(payload.getLong());
+                byte withdrawalType = payload.get();
+                long amount = payload.getLong();
+                source.restore(timestamp, withdrawalType, -amount);
+                target.restore(timestamp, Transaction.DEPOSIT, amount);
+                break;
+            }
+            case ACCRUAL: {
+                long timestamp = payload.getLong();
+                SavingsAccount account = (SavingsAccount) bank.findAccount(payload.getLong());
+                account.setLastAccrualDay(payload.getLong());
+                account.restore(timestamp, Transaction.INTEREST, payload.getLong());
+                break;
+            }
+            case ADD_CUSTOMER: {
+                int customerId = payload.getInt();
+                byte[] name = new byte[payload.getInt()];
+                payload.get(name);
+                bank.addCustomer(new Customer(customerId, new String(name, StandardCharsets.UTF_8)));
+                break;
+            }
+            case OPEN_ACCOUNT: {
+                Customer customer = bank.findCustomerById(payload.getInt());
+                byte kind = payload.get();
+                long accountNumber = payload.getLong();
+                long overdraftLimit = payload.getLong();
+                byte[] rate = new byte[payload.getInt()];
+                payload.get(rate);
+                Account account = BankSnapshot.newAccount(kind, accountNumber, overdraftLimit,
+                        rate.length == 0 ? null : new BigDecimal(new String(rate, StandardCharsets.UTF_8)));
+                long balance = payload.getLong();
+                long lastAccrualDay = payload.getLong();
+                if (account instanceof SavingsAccount) {
+                    ((SavingsAccount) account).setLastAccrualDay(lastAccrualDay);
+                }
+                readRows(payload, account);
+                account.setBalance(balance);
+                customer.addAccount(account);
+                break;
+            }
+            case HISTORY:
+                readRows(payload, bank.findAccount(payload.getLong()));
+                break;
+            case DELETE_ACCOUNT: {
+                Customer customer = bank.findCustomerById(payload.getInt());
+                customer.removeAccount(payload.getLong());
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record type " + op);
+        }
+    }
+
+    // Rows carried by OPEN_ACCOUNT and HISTORY records are history only; the balance is logged
+    // separately.
+    private static void readRows(ByteBuffer payload, Account account) {
+        TransactionLog history = account.getTransactionHistory();
+        int rows = payload.getInt();
+        for (int row = 0; row < rows; row++) {
+            history.append(payload.getLong(), payload.get(), payload.getLong());
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package bankpackage;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Socket server for line-oriented request/reply protocols. Every request line gets exactly one reply
+// line, in order, so clients may pipeline; replies are written once the requests that have already
+// arrived are answered. Connections are spread over a fixed set of selector threads, one per core,
+// which also run handle(), so the thread count does not grow with the number of clients. A client
+// that stops reading its replies is not read from until they drain. Time spent in handle() is
+// recorded per request.
+public abstract class LineProtocolServer implements Closeable {
+    private static final int BUFFER_SIZE = 8 << 10;
+    static final int MAX_LINE_LENGTH = 64 << 10;
+
+    private final ServerSocketChannel serverChannel;
+    private final Thread acceptor;
+    private final EventLoop[] loops;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile boolean closed;
+
+    protected LineProtocolServer(InetAddress address, int port, String name) throws IOException {
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(address, port), 4096);
+            this.loops = new EventLoop[Math.max(1, Runtime.getRuntime().availableProcessors())];
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop(name + "-io-" + i);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        this.acceptor = new Thread(this::acceptLoop, name + "-acceptor");
+    }
+
+    protected LineProtocolServer(int port, String name) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, name);
+    }
+
+    // The reply line for one request line, without the trailing newline. Runs on a selector thread
+    // shared with other connections, so it should not block for long.
+    protected abstract String handle(String request);
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public void start() {
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptor.start();
+    }
+
+    // Whether text can travel as a field of a request line: no line breaks or other control characters
+    // that could end the line early or smuggle in a second request.
+    static boolean fitsOnOneLine(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < ' ' || c == 0x7F || c == '\u2028' || c == '\u2029' || c == 0x85) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (!closed) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                loops[next].add(channel);
+                next = (next + 1) % loops.length;
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Stops accepting, then closes every client connection before returning.
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverChannel.close();
+        if (acceptor != null) {
+            join(acceptor);
+        }
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.selector.wakeup();
+                    join(loop.thread);
+                    loop.closeAll();
+                }
+            }
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        private final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+
+        EventLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        void add(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    for (SocketChannel channel; (channel = accepted.poll()) != null; ) {
+                        register(channel);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            } else if (key.isWritable()) {
+                                connection.write();
+                            }
+                        } catch (IOException | CancelledKeyException e) {
+                            // Client went away.
+                            connection.close();
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (!closed) {
+                    System.err.println("Selector failed: " + e.getMessage());
+                }
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(channel, key));
+            } catch (IOException e) {
+                closeQuietly(channel);
+            }
+        }
+
+        // Only once the thread has stopped (or never started).
+        void closeAll() {
+            for (SocketChannel channel; (channel = accepted.poll()) != null; ) {
+                closeQuietly(channel);
+            }
+            if (selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key.channel());
+                }
+                closeQuietly(selector);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do with it.
+        }
+    }
+
+    // One client's buffers. in holds request bytes not yet answered, [0, scanned) of them known to
+    // contain no newline; out holds reply bytes not yet written.
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        private int scanned;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            byte[] bytes = in.array();
+            int lineStart = 0;
+            for (int i = scanned; i < in.position(); i++) {
+                if (bytes[i] == '\n') {
+                    int end = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                    answer(new String(bytes, lineStart, end - lineStart, StandardCharsets.UTF_8));
+                    lineStart = i + 1;
+                }
+            }
+            in.flip().position(lineStart);
+            in.compact();
+            scanned = in.position();
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_LINE_LENGTH) {
+                    append("ERR request line longer than " + MAX_LINE_LENGTH + " bytes");
+                    write();
+                    close();
+                    return;
+                }
+                in = grow(in, in.capacity() * 2);
+            }
+            write();
+        }
+
+        private void answer(String request) {
+            long start = System.nanoTime();
+            String reply;
+            try {
+                reply = handle(request);
+            } catch (RuntimeException e) {
+                reply = "ERR " + e;
+            }
+            latency.record(System.nanoTime() - start);
+            append(reply);
+        }
+
+        private void append(String reply) {
+            byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+            if (out.remaining() < bytes.length + 1) {
+                out = grow(out, Math.max(out.capacity() * 2, out.position() + bytes.length + 1));
+            }
+            out.put(bytes).put((byte) '\n');
+        }
+
+        // Writes what the socket takes; the rest waits for OP_WRITE, and no more requests are read
+        // until it has gone.
+        void write() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (key.isValid()) {
+                key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            closeQuietly(channel);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        return grown.put(buffer);
+    }
+}
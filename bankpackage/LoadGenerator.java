@@ -0,0 +1,153 @@
+package bankpackage;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives a BankServer with many concurrent pipelining clients and reports throughput and round-trip
+// latency percentiles. Starts its own server on loopback over a freshly seeded bank, so the final
+// total can be checked against the acknowledged deposits and withdrawals.
+//
+//   java bankpackage.LoadGenerator [clients=1000] [pipeline=8] [seconds=10] [accounts=10000]
+//
+// Every client is a thread of its own (virtual where the JDK has them) with one connection; it
+// writes `pipeline` requests, flushes, then reads the replies. Latency is measured per request from
+// the flush to its reply, so it includes any time spent queued behind earlier requests in the batch.
+public class LoadGenerator {
+    private static final long FIRST_ACCOUNT = 1_000_000L;
+    private static final long OPENING_BALANCE = Money.ofRupees(10_000);
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int pipeline = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        for (int i = 0; i < accounts; i++) {
+            Customer customer = new Customer(i, "Customer " + i);
+            bank.addCustomer(customer);
+            Account account = i % 2 == 0 ? new SavingsAccount(FIRST_ACCOUNT + i, BigDecimal.ZERO)
+                    : new CurrentAccount(FIRST_ACCOUNT + i, Money.ofRupees(1_000));
+            customer.addAccount(account);
+            account.deposit(OPENING_BALANCE);
+        }
+        long expectedTotal = OPENING_BALANCE * accounts;
+
+        try (BankServer server = new BankServer(bank, 0)) {
+            server.start();
+            LatencyHistogram latency = new LatencyHistogram();
+            LongAdder requests = new LongAdder();
+            LongAdder declined = new LongAdder();
+            LongAdder errors = new LongAdder();
+            LongAdder netDeposits = new LongAdder();
+            ExecutorService pool = newClientExecutor();
+            CountDownLatch connected = new CountDownLatch(clients);
+            CountDownLatch go = new CountDownLatch(1);
+            AtomicLong deadline = new AtomicLong();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                long seed = c;
+                futures.add(pool.submit(() -> {
+                    runClient(server.getPort(), seed, pipeline, accounts, connected, go, deadline, latency, requests,
+                            declined, errors, netDeposits);
+                    return null;
+                }));
+            }
+            connected.await();
+            long start = System.nanoTime();
+            deadline.set(start + TimeUnit.SECONDS.toNanos(seconds));
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+
+            long total = bank.getAggregates().getTotalBalance();
+            System.out.printf("clients=%d pipeline=%d requests=%,d (%,.0f req/s) declined=%,d errors=%,d%n", clients,
+                    pipeline, requests.sum(), requests.sum() * 1e9 / elapsed, declined.sum(), errors.sum());
+            System.out.println("round trip:  " + latency);
+            System.out.println("server side: " + server.getLatency());
+            System.out.println("total-ok=" + (total == expectedTotal + netDeposits.sum()));
+        }
+    }
+
+    // Virtual threads on JDK 21+, platform threads otherwise.
+    private static ExecutorService newClientExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static void runClient(int port, long seed, int pipeline, int accounts, CountDownLatch connected,
+                                  CountDownLatch go, AtomicLong deadline, LatencyHistogram latency, LongAdder requests, LongAdder declined,
+                                  LongAdder errors, LongAdder netDeposits) throws Exception {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] batch = new String[pipeline];
+        long[] deltas = new long[pipeline];
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            connected.countDown();
+            go.await();
+            long end = deadline.get();
+            while (System.nanoTime() < end) {
+                for (int i = 0; i < pipeline; i++) {
+                    long account = FIRST_ACCOUNT + random.nextInt(accounts);
+                    long amount = Money.ofRupees(1 + random.nextInt(500));
+                    int op = random.nextInt(10);
+                    deltas[i] = 0;
+                    if (op < 6) {
+                        batch[i] = "TRANSFER " + account + " " + (FIRST_ACCOUNT + random.nextInt(accounts)) + " "
+                                + amount;
+                    } else if (op < 8) {
+                        batch[i] = "DEPOSIT " + account + " " + amount;
+                        deltas[i] = amount;
+                    } else if (op < 9) {
+                        batch[i] = "WITHDRAW " + account + " " + amount;
+                        deltas[i] = -amount;
+                    } else {
+                        batch[i] = "BALANCE " + account;
+                    }
+                    out.write(batch[i]);
+                    out.write('\n');
+                }
+                out.flush();
+                long sent = System.nanoTime();
+                for (int i = 0; i < pipeline; i++) {
+                    String reply = in.readLine();
+                    latency.record(System.nanoTime() - sent);
+                    if (reply == null) {
+                        throw new EOFException("Server closed the connection");
+                    }
+                    if (reply.startsWith("OK")) {
+                        netDeposits.add(deltas[i]);
+                    } else if (reply.equals("NO")) {
+                        declined.increment();
+                    } else {
+                        errors.increment();
+                    }
+                }
+                requests.add(pipeline);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package bankpackage;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// A shard backed by a Bank in this JVM.
+//
+// Ids of finished transfers are remembered (the most recent FINISHED_TRANSFERS_KEPT of each kind), so
+// a step that arrives late or is retried after its transfer was committed or aborted does nothing:
+// a prepare is refused and a credit is reported as applied without depositing again. The steps of
+// one transfer are serialized by a lock stripe picked by its id.
+public class LocalShard implements Shard {
+    static final int FINISHED_TRANSFERS_KEPT = 1 << 16;
+    private static final int STRIPES = 64;
+
+    private final Bank bank;
+    private final ConcurrentHashMap<Long, Hold> holds = new ConcurrentHashMap<>();
+    private final LongAdder heldFunds = new LongAdder();
+    private final ConcurrentHashMap<Long, Hold> credits = new ConcurrentHashMap<>();
+    private final LongAdder creditedFunds = new LongAdder();
+    private final FinishedTransfers finishedDebits = new FinishedTransfers();
+    private final FinishedTransfers finishedCredits = new FinishedTransfers();
+    private final Object[] stripes = new Object[STRIPES];
+
+    public LocalShard(Bank bank) {
+        this.bank = bank;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    private Object stripe(long transferId) {
+        long mixed = transferId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (mixed >>> 58)];
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    @Override
+    public boolean openSavingsAccount(int customerId, String customerName, long accountNumber,
+                                      BigDecimal interestRate) {
+        return open(customerId, customerName, new SavingsAccount(accountNumber, interestRate));
+    }
+
+    @Override
+    public boolean openCurrentAccount(int customerId, String customerName, long accountNumber, long overdraftLimit) {
+        return open(customerId, customerName, new CurrentAccount(accountNumber, overdraftLimit));
+    }
+
+    private boolean open(int customerId, String customerName, Account account) {
+        synchronized (bank) {
+            if (bank.findAccount(account.getAccountNumber()) != null) {
+                return false;
+            }
+            Customer customer = bank.findCustomerById(customerId);
+            if (customer == null) {
+                customer = new Customer(customerId, customerName);
+                bank.addCustomer(customer);
+            }
+            return customer.addAccount(account);
+        }
+    }
+
+    @Override
+    public boolean deposit(long accountNumber, long amount) {
+        Account account = bank.findAccount(accountNumber);
+        if (account == null) {
+            return false;
+        }
+        account.deposit(amount);
+        return true;
+    }
+
+    @Override
+    public boolean withdraw(long accountNumber, long amount) {
+        Account account = bank.findAccount(accountNumber);
+        return account != null && account.withdraw(amount);
+    }
+
+    @Override
+    public boolean transfer(long sourceAccountNumber, long targetAccountNumber, long amount) {
+        return bank.transfer(sourceAccountNumber, targetAccountNumber, amount);
+    }
+
+    @Override
+    public long getBalance(long accountNumber) {
+        Account account = bank.findAccount(accountNumber);
+        return account == null ? NO_ACCOUNT : account.getBalance();
+    }
+
+    // Refused for an id that already has a hold or whose transfer has finished here, including one
+    // aborted before its prepare arrived.
+    @Override
+    public boolean prepareDebit(long transferId, long accountNumber, long amount) {
+        Account account = bank.findAccount(accountNumber);
+        if (account == null || amount <= 0) {
+            return false;
+        }
+        synchronized (stripe(transferId)) {
+            if (finishedDebits.contains(transferId) || holds.containsKey(transferId) || !account.withdraw(amount)) {
+                return false;
+            }
+            holds.put(transferId, new Hold(accountNumber, amount));
+            heldFunds.add(amount);
+            return true;
+        }
+    }
+
+    // A retry of a credit already applied returns true without depositing again, as long as it names
+    // the same account and amount; one that does not is refused.
+    @Override
+    public boolean credit(long transferId, long accountNumber, long amount) {
+        Account account = bank.findAccount(accountNumber);
+        if (account == null || amount <= 0) {
+            return false;
+        }
+        synchronized (stripe(transferId)) {
+            if (finishedCredits.contains(transferId)) {
+                return true;
+            }
+            Hold applied = credits.get(transferId);
+            if (applied != null) {
+                return applied.accountNumber == accountNumber && applied.amount == amount;
+            }
+            credits.put(transferId, new Hold(accountNumber, amount));
+            creditedFunds.add(amount);
+            account.deposit(amount);
+            return true;
+        }
+    }
+
+    @Override
+    public void commitDebit(long transferId) {
+        synchronized (stripe(transferId)) {
+            Hold hold = holds.remove(transferId);
+            if (hold != null) {
+                heldFunds.add(-hold.amount);
+            }
+            finishedDebits.add(transferId);
+        }
+    }
+
+    @Override
+    public void abortDebit(long transferId) {
+        synchronized (stripe(transferId)) {
+            Hold hold = holds.remove(transferId);
+            if (hold != null) {
+                bank.findAccount(hold.accountNumber).deposit(hold.amount);
+                heldFunds.add(-hold.amount);
+            }
+            finishedDebits.add(transferId);
+        }
+    }
+
+    @Override
+    public void commitCredit(long transferId) {
+        synchronized (stripe(transferId)) {
+            Hold credit = credits.remove(transferId);
+            if (credit != null) {
+                creditedFunds.add(-credit.amount);
+            }
+            finishedCredits.add(transferId);
+        }
+    }
+
+    @Override
+    public long getTotalBalance() {
+        return bank.getAggregates().getTotalBalance() + heldFunds.sum() - creditedFunds.sum();
+    }
+
+    @Override
+    public int getPendingTransfers() {
+        return holds.size() + credits.size();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // An amount held on, or credited to, one account.
+    private static final class Hold {
+        final long accountNumber;
+        final long amount;
+
+        Hold(long accountNumber, long amount) {
+            this.accountNumber = accountNumber;
+            this.amount = amount;
+        }
+    }
+
+    // Ids of the most recently finished transfers, oldest dropped first.
+    private static final class FinishedTransfers {
+        private final LinkedHashSet<Long> ids = new LinkedHashSet<>();
+
+        synchronized void add(long transferId) {
+            if (ids.add(transferId) && ids.size() > FINISHED_TRANSFERS_KEPT) {
+                Iterator<Long> oldest = ids.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+
+        synchronized boolean contains(long transferId) {
+            return ids.contains(transferId);
+        }
+    }
+}
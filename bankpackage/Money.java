@@ -0,0 +1,46 @@
+package bankpackage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts are carried as plain longs in paise so balance arithmetic stays exact and allocation-free.
+public final class Money {
+    public static final int SCALE = 2;
+    public static final long PAISE_PER_RUPEE = 100;
+
+    private Money() {
+    }
+
+    public static long ofRupees(long rupees) {
+        return Math.multiplyExact(rupees, PAISE_PER_RUPEE);
+    }
+
+    public static long parse(String amount) {
+        return new BigDecimal(amount.trim()).setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long paise) {
+        return BigDecimal.valueOf(paise, SCALE);
+    }
+
+    public static long applyRate(long paise, BigDecimal rate, RoundingMode roundingMode) {
+        return toBigDecimal(paise).multiply(rate).setScale(SCALE, roundingMode).unscaledValue().longValueExact();
+    }
+
+    public static String format(long paise) {
+        return appendTo(new StringBuilder(24), paise).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, long paise) {
+        long rupees = paise / PAISE_PER_RUPEE;
+        long fraction = Math.abs(paise % PAISE_PER_RUPEE);
+        if (paise < 0 && rupees == 0) {
+            sb.append('-');
+        }
+        sb.append(rupees).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
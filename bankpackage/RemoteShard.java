@@ -0,0 +1,190 @@
+package bankpackage;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Client side of ShardServer. Keeps a small pool of connections so several caller threads can have
+// requests in flight against the same shard. A connection that fails is closed and reopened on its
+// next use, since the reply to whatever was in flight may still be on its way.
+public class RemoteShard implements Shard {
+    private final ArrayBlockingQueue<Connection> pool;
+    private final Connection[] connections;
+
+    public RemoteShard(int port, int connections) throws IOException {
+        this.pool = new ArrayBlockingQueue<>(connections);
+        this.connections = new Connection[connections];
+        for (int i = 0; i < connections; i++) {
+            this.connections[i] = new Connection(port);
+            pool.add(this.connections[i]);
+        }
+    }
+
+    private String call(String request) {
+        Connection connection;
+        try {
+            connection = pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a shard connection", e);
+        }
+        try {
+            String reply = connection.call(request);
+            if (reply.startsWith("ERR")) {
+                throw new IllegalStateException("Shard rejected '" + request + "': " + reply);
+            }
+            return reply;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pool.add(connection);
+        }
+    }
+
+    private boolean ok(String request) {
+        return call(request).equals("OK");
+    }
+
+    private long value(String request) {
+        String reply = call(request);
+        return reply.equals("NO") ? NO_ACCOUNT : Long.parseLong(reply.substring(3));
+    }
+
+    @Override
+    public boolean openSavingsAccount(int customerId, String customerName, long accountNumber,
+                                      BigDecimal interestRate) {
+        return ok("OPEN_SAVINGS " + customerId + " " + accountNumber + " " + interestRate.toPlainString() + " "
+                + checkName(customerName));
+    }
+
+    @Override
+    public boolean openCurrentAccount(int customerId, String customerName, long accountNumber, long overdraftLimit) {
+        return ok("OPEN_CURRENT " + customerId + " " + accountNumber + " " + overdraftLimit + " "
+                + checkName(customerName));
+    }
+
+    // The name is the last field of its request line, so it may contain spaces but nothing that would
+    // end the line.
+    private static String checkName(String customerName) {
+        if (!LineProtocolServer.fitsOnOneLine(customerName)) {
+            throw new IllegalArgumentException("Customer name contains control characters");
+        }
+        return customerName;
+    }
+
+    @Override
+    public boolean deposit(long accountNumber, long amount) {
+        return ok("DEPOSIT " + accountNumber + " " + amount);
+    }
+
+    @Override
+    public boolean withdraw(long accountNumber, long amount) {
+        return ok("WITHDRAW " + accountNumber + " " + amount);
+    }
+
+    @Override
+    public boolean transfer(long sourceAccountNumber, long targetAccountNumber, long amount) {
+        return ok("TRANSFER " + sourceAccountNumber + " " + targetAccountNumber + " " + amount);
+    }
+
+    @Override
+    public long getBalance(long accountNumber) {
+        return value("BALANCE " + accountNumber);
+    }
+
+    @Override
+    public boolean prepareDebit(long transferId, long accountNumber, long amount) {
+        return ok("PREPARE " + transferId + " " + accountNumber + " " + amount);
+    }
+
+    @Override
+    public boolean credit(long transferId, long accountNumber, long amount) {
+        return ok("CREDIT " + transferId + " " + accountNumber + " " + amount);
+    }
+
+    @Override
+    public void commitDebit(long transferId) {
+        call("COMMIT " + transferId);
+    }
+
+    @Override
+    public void abortDebit(long transferId) {
+        call("ABORT " + transferId);
+    }
+
+    @Override
+    public void commitCredit(long transferId) {
+        call("COMMIT_CREDIT " + transferId);
+    }
+
+    @Override
+    public long getTotalBalance() {
+        return value("TOTAL");
+    }
+
+    @Override
+    public int getPendingTransfers() {
+        return (int) value("PENDING");
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    // Only used by the thread that took it from the pool, apart from close().
+    private static final class Connection {
+        final int port;
+        Socket socket;
+        BufferedReader in;
+        Writer out;
+
+        Connection(int port) throws IOException {
+            this.port = port;
+            open();
+        }
+
+        private void open() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String call(String request) throws IOException {
+            if (socket == null) {
+                open();
+            }
+            try {
+                out.write(request);
+                out.write('\n');
+                out.flush();
+                String reply = in.readLine();
+                if (reply == null) {
+                    throw new EOFException("Shard closed the connection");
+                }
+                return reply;
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void close() {
+            Socket socket = this.socket;
+            this.socket = null;
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing useful to do with a connection that is being dropped.
+                }
+            }
+        }
+    }
+}
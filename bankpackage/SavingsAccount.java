@@ -1,20 +1,92 @@
 package bankpackage;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 public class SavingsAccount extends Account {
-    private double interestRate;
+    private BigDecimal interestRate;
+    private long lastAccrualDay = Long.MIN_VALUE; // epoch day of the last batch accrual, guarded by the lock
 
-    public SavingsAccount(long accountNumber, double interestRate) {
+    public SavingsAccount(long accountNumber, BigDecimal interestRate) {
         super(accountNumber);
         this.interestRate = interestRate;
     }
 
+    public SavingsAccount(long accountNumber, double interestRate) {
+        this(accountNumber, BigDecimal.valueOf(interestRate));
+    }
+
+    public BigDecimal getInterestRate() {
+        return interestRate;
+    }
+
+    public long getLastAccrualDay() {
+        return lastAccrualDay;
+    }
+
+    void setLastAccrualDay(long lastAccrualDay) {
+        this.lastAccrualDay = lastAccrualDay;
+    }
+
     public void applyInterest() {
-        if (interestRate >= 0) {
-            double interest = getBalance() * interestRate;
-            deposit(interest);
-            System.out.println("Interest applied successfully.");
+        applyInterest(RoundingMode.HALF_EVEN);
+    }
+
+    public void applyInterest(RoundingMode roundingMode) {
+        if (interestRate.signum() >= 0) {
+            long interest;
+            Journal journal = beginMutation();
+            lockForUpdate();
+            try {
+                interest = Money.applyRate(getBalance(), interestRate, roundingMode);
+                post(Transaction.INTEREST, interest);
+            } finally {
+                unlockAfterUpdate();
+                Journal.endMutation(journal);
+            }
+            events().publish(AccountEvent.INTEREST_APPLIED, getAccountNumber(), interest);
+            BankMetrics metrics = metrics();
+            if (metrics != null) {
+                metrics.interestPosted();
+            }
         } else {
-            System.out.println("Error: Invalid interest rate.");
+            events().publish(AccountEvent.INVALID_INTEREST_RATE, getAccountNumber(), 0);
+        }
+    }
+
+    // Batch accrual for one business day: posts interest at most once per epochDay and never prints.
+    // Returns the interest posted, or -1 if the account was skipped.
+    long accrueInterest(long epochDay, RoundingMode roundingMode) {
+        if (interestRate.signum() < 0) {
+            return -1;
+        }
+        Journal journal = beginMutation();
+        lockForUpdate();
+        try {
+            if (lastAccrualDay >= epochDay) {
+                return -1;
+            }
+            long interest = Money.applyRate(getBalance(), interestRate, roundingMode);
+            lastAccrualDay = epochDay;
+            // The posting and the accrual day are journaled together so a replay cannot post twice.
+            setJournalDeferred(true);
+            long timestamp;
+            try {
+                timestamp = post(Transaction.INTEREST, interest);
+            } finally {
+                setJournalDeferred(false);
+            }
+            if (journal != null) {
+                journal.logAccrual(getAccountNumber(), epochDay, interest, timestamp);
+            }
+            BankMetrics metrics = metrics();
+            if (metrics != null) {
+                metrics.interestPosted();
+            }
+            return interest;
+        } finally {
+            unlockAfterUpdate();
+            Journal.endMutation(journal);
         }
     }
 }
@@ -0,0 +1,54 @@
+package bankpackage;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+
+// One partition of a ShardedBank. A shard owns every account whose number hashes to it and a copy of
+// each customer that owns at least one of those accounts. Remote implementations report I/O failures
+// as UncheckedIOException.
+//
+// Cross-shard transfers use the debit/credit steps, all keyed by a transfer id: prepareDebit withdraws
+// the amount into a hold on the source shard, credit deposits it on the target, the hold is then
+// committed (dropped) or aborted (refunded), and finally commitCredit lets the target forget the id.
+// Every step is idempotent, so one whose reply was lost can simply be sent again; in particular a
+// repeated credit is applied only once, and a prepare that arrives after its transfer was aborted or
+// committed is refused. A transfer id must name one transfer only: a credit retried with a different
+// account or amount is refused. Funds on hold count towards the source's getTotalBalance and
+// uncommitted credits are left out of the target's, so money is never created or lost while a
+// transfer is in flight, even one whose outcome is in doubt.
+public interface Shard extends Closeable {
+    long NO_ACCOUNT = Long.MIN_VALUE;
+
+    boolean openSavingsAccount(int customerId, String customerName, long accountNumber, BigDecimal interestRate);
+
+    boolean openCurrentAccount(int customerId, String customerName, long accountNumber, long overdraftLimit);
+
+    boolean deposit(long accountNumber, long amount);
+
+    boolean withdraw(long accountNumber, long amount);
+
+    // Both accounts must live on this shard.
+    boolean transfer(long sourceAccountNumber, long targetAccountNumber, long amount);
+
+    // NO_ACCOUNT if the account does not exist here.
+    long getBalance(long accountNumber);
+
+    boolean prepareDebit(long transferId, long accountNumber, long amount);
+
+    boolean credit(long transferId, long accountNumber, long amount);
+
+    void commitDebit(long transferId);
+
+    void abortDebit(long transferId);
+
+    void commitCredit(long transferId);
+
+    // Sum of all balances on the shard plus funds on hold, minus credits not yet committed.
+    long getTotalBalance();
+
+    // Holds and credits not yet committed or aborted.
+    int getPendingTransfers();
+
+    @Override
+    void close();
+}
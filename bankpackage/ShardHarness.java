@@ -0,0 +1,109 @@
+package bankpackage;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Local multi-process scaling test for ShardedBank. For each shard count it starts that many
+// ShardServer processes, opens the accounts, runs random transfers from a pool of client threads,
+// checks that the bank-wide total is unchanged and that no transfer was left on hold, then reports
+// throughput.
+//
+//   java bankpackage.ShardHarness [maxShards=4] [accounts=10000] [transfers=200000] [threads=16]
+public class ShardHarness {
+    private static final long OPENING_BALANCE = Money.ofRupees(10_000);
+
+    public static void main(String[] args) throws Exception {
+        int maxShards = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int transfers = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+        System.out.println("shards  transfers/s  cross-shard  declined  total-ok");
+        for (int shardCount = 1; shardCount <= maxShards; shardCount *= 2) {
+            run(shardCount, accounts, transfers, threads);
+        }
+    }
+
+    private static void run(int shardCount, int accounts, int transfers, int threads) throws Exception {
+        List<Process> processes = new ArrayList<>();
+        Shard[] shards = new Shard[shardCount];
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                Process process = startShardProcess();
+                processes.add(process);
+                shards[i] = new RemoteShard(awaitPort(process), threads);
+            }
+            try (ShardedBank bank = new ShardedBank(shards)) {
+                for (int i = 0; i < accounts; i++) {
+                    long accountNumber = 1_000_000L + i;
+                    if (i % 2 == 0) {
+                        bank.openSavingsAccount(i, "Customer " + i, accountNumber, BigDecimal.ZERO);
+                    } else {
+                        bank.openCurrentAccount(i, "Customer " + i, accountNumber, Money.ofRupees(1_000));
+                    }
+                    bank.deposit(accountNumber, OPENING_BALANCE);
+                }
+                long expectedTotal = OPENING_BALANCE * accounts;
+
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                LongAdder crossShard = new LongAdder();
+                LongAdder declined = new LongAdder();
+                int perThread = transfers / threads;
+                long start = System.nanoTime();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long seed = t;
+                    futures.add(pool.submit(() -> {
+                        SplittableRandom random = new SplittableRandom(seed);
+                        for (int i = 0; i < perThread; i++) {
+                            long source = 1_000_000L + random.nextInt(accounts);
+                            long target = 1_000_000L + random.nextInt(accounts);
+                            if (bank.shardIndexFor(source) != bank.shardIndexFor(target)) {
+                                crossShard.increment();
+                            }
+                            if (!bank.transfer(source, target, Money.ofRupees(1 + random.nextInt(500)))) {
+                                declined.increment();
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                long elapsed = System.nanoTime() - start;
+                pool.shutdown();
+
+                boolean conserved = bank.getTotalBalance() == expectedTotal && bank.getPendingTransfers() == 0;
+                System.out.printf("%6d  %11.0f  %11d  %8d  %s%n", shardCount, perThread * threads * 1e9 / elapsed,
+                        crossShard.sum(), declined.sum(), conserved);
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    private static Process startShardProcess() throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ShardServer.class.getName());
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    private static int awaitPort(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line == null || !line.startsWith("LISTENING ")) {
+            throw new IOException("Shard process did not start: " + line);
+        }
+        return Integer.parseInt(line.substring("LISTENING ".length()));
+    }
+}
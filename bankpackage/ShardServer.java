@@ -0,0 +1,99 @@
+package bankpackage;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+// Serves a LocalShard over a local TCP socket with a line-oriented text protocol (see
+// LineProtocolServer). Replies are "OK", "OK <value>", "NO" or "ERR <message>"; amounts that are not
+// positive, and customer names with control characters, are answered with "NO".
+//
+//   OPEN_SAVINGS <customerId> <accountNumber> <interestRate> <customerName>
+//   OPEN_CURRENT <customerId> <accountNumber> <overdraftLimitPaise> <customerName>
+//   DEPOSIT <accountNumber> <paise>         WITHDRAW <accountNumber> <paise>
+//   TRANSFER <source> <target> <paise>      BALANCE <accountNumber>
+//   PREPARE <transferId> <accountNumber> <paise>
+//   CREDIT <transferId> <accountNumber> <paise>
+//   COMMIT <transferId>     ABORT <transferId>     COMMIT_CREDIT <transferId>
+//   TOTAL                                   PENDING
+//
+// Run as its own process with: java bankpackage.ShardServer [port]; it prints "LISTENING <port>"
+// once it is ready, which is what ShardHarness waits for.
+public class ShardServer extends LineProtocolServer {
+    private final LocalShard shard;
+
+    public ShardServer(LocalShard shard, int port) throws IOException {
+        super(port, "shard");
+        this.shard = shard;
+    }
+
+    @Override
+    protected String handle(String line) {
+        String[] parts = line.split(" ", 5);
+        try {
+            switch (parts[0]) {
+                case "OPEN_SAVINGS":
+                    return reply(fitsOnOneLine(parts[4]) && shard.openSavingsAccount(Integer.parseInt(parts[1]),
+                            parts[4], Long.parseLong(parts[2]), new BigDecimal(parts[3])));
+                case "OPEN_CURRENT":
+                    return reply(fitsOnOneLine(parts[4]) && shard.openCurrentAccount(Integer.parseInt(parts[1]),
+                            parts[4], Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+                case "DEPOSIT": {
+                    long amount = Long.parseLong(parts[2]);
+                    return reply(amount > 0 && shard.deposit(Long.parseLong(parts[1]), amount));
+                }
+                case "WITHDRAW": {
+                    long amount = Long.parseLong(parts[2]);
+                    return reply(amount > 0 && shard.withdraw(Long.parseLong(parts[1]), amount));
+                }
+                case "TRANSFER": {
+                    long amount = Long.parseLong(parts[3]);
+                    return reply(amount > 0 && shard.transfer(Long.parseLong(parts[1]), Long.parseLong(parts[2]), amount));
+                }
+                case "BALANCE": {
+                    long balance = shard.getBalance(Long.parseLong(parts[1]));
+                    return balance == Shard.NO_ACCOUNT ? "NO" : "OK " + balance;
+                }
+                case "PREPARE": {
+                    long amount = Long.parseLong(parts[3]);
+                    return reply(amount > 0 && shard.prepareDebit(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                            amount));
+                }
+                case "CREDIT": {
+                    long amount = Long.parseLong(parts[3]);
+                    return reply(amount > 0 && shard.credit(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                            amount));
+                }
+                case "COMMIT":
+                    shard.commitDebit(Long.parseLong(parts[1]));
+                    return "OK";
+                case "ABORT":
+                    shard.abortDebit(Long.parseLong(parts[1]));
+                    return "OK";
+                case "COMMIT_CREDIT":
+                    shard.commitCredit(Long.parseLong(parts[1]));
+                    return "OK";
+                case "TOTAL":
+                    return "OK " + shard.getTotalBalance();
+                case "PENDING":
+                    return "OK " + shard.getPendingTransfers();
+                default:
+                    return "ERR unknown command " + parts[0];
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return "ERR malformed request: " + line;
+        }
+    }
+
+    private static String reply(boolean ok) {
+        return ok ? "OK" : "NO";
+    }
+
+    public static void main(String[] args) throws IOException {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        ShardServer server = new ShardServer(new LocalShard(bank), args.length > 0 ? Integer.parseInt(args[0]) : 0);
+        server.start();
+        System.out.println("LISTENING " + server.getPort());
+        System.out.flush();
+    }
+}
@@ -0,0 +1,226 @@
+package bankpackage;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Partitions accounts across shards by a hash of the account number and coordinates transfers that
+// cross shards. Shards may be in-process (LocalShard) or separate processes (RemoteShard).
+//
+// Transfer ids carry the coordinator id in their top 16 bits, above a counter that starts at a random
+// point, so ShardedBanks sharing shards must be given distinct coordinator ids.
+public class ShardedBank implements Closeable {
+    static final int MAX_COORDINATOR_ID = 0xFFFF;
+    private static final int CREDIT_ATTEMPTS = 3;
+
+    private final Shard[] shards;
+    private final AtomicLong nextTransferId;
+    private final ConcurrentHashMap<Long, CrossShardTransfer> inDoubt = new ConcurrentHashMap<>();
+
+    public ShardedBank(Shard... shards) {
+        this(ThreadLocalRandom.current().nextInt(MAX_COORDINATOR_ID + 1), shards);
+    }
+
+    public ShardedBank(int coordinatorId, Shard... shards) {
+        if (shards.length == 0) {
+            throw new IllegalArgumentException("A sharded bank needs at least one shard");
+        }
+        if (coordinatorId < 0 || coordinatorId > MAX_COORDINATOR_ID) {
+            throw new IllegalArgumentException("Coordinator id must be between 0 and " + MAX_COORDINATOR_ID);
+        }
+        this.shards = shards.clone();
+        // Half the counter range is left above the start, so it never runs into the coordinator bits.
+        long counter = ThreadLocalRandom.current().nextLong(1L << 47);
+        this.nextTransferId = new AtomicLong(((long) coordinatorId << 48) | counter);
+    }
+
+    // An in-process sharded bank with the given number of empty shards.
+    public static ShardedBank local(int shardCount) {
+        Shard[] shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            Bank bank = new Bank();
+            bank.setEventSink(EventSink.NO_OP);
+            shards[i] = new LocalShard(bank);
+        }
+        return new ShardedBank(shards);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int shardIndexFor(long accountNumber) {
+        // Spread sequential account numbers evenly before taking the modulus.
+        long mixed = accountNumber * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(mixed ^ (mixed >>> 32), shards.length);
+    }
+
+    public Shard shardFor(long accountNumber) {
+        return shards[shardIndexFor(accountNumber)];
+    }
+
+    public boolean openSavingsAccount(int customerId, String customerName, long accountNumber,
+                                      BigDecimal interestRate) {
+        return shardFor(accountNumber).openSavingsAccount(customerId, customerName, accountNumber, interestRate);
+    }
+
+    public boolean openCurrentAccount(int customerId, String customerName, long accountNumber, long overdraftLimit) {
+        return shardFor(accountNumber).openCurrentAccount(customerId, customerName, accountNumber, overdraftLimit);
+    }
+
+    public boolean deposit(long accountNumber, long amount) {
+        return shardFor(accountNumber).deposit(accountNumber, amount);
+    }
+
+    public boolean withdraw(long accountNumber, long amount) {
+        return shardFor(accountNumber).withdraw(accountNumber, amount);
+    }
+
+    public long getBalance(long accountNumber) {
+        return shardFor(accountNumber).getBalance(accountNumber);
+    }
+
+    // Same-shard transfers run on that shard directly. Otherwise the amount is first debited into a
+    // hold on the source shard, then credited on the target (retried a few times with the same transfer
+    // id if the connection fails), then the hold and the credit are committed; if the credit is
+    // refused the hold is aborted and the source refunded.
+    //
+    // A transfer that still cannot finish because a shard is unreachable or fails a request
+    // (UncheckedIOException or IllegalStateException from a RemoteShard) is kept as in doubt and
+    // finished by resolveInDoubt; the shards count its money exactly once in the meantime. It is
+    // reported as done (true) once the credit is known to have been applied, and as not done (false)
+    // otherwise, even though resolving it may still apply the credit later.
+    public boolean transfer(long sourceAccountNumber, long targetAccountNumber, long amount) {
+        Shard source = shardFor(sourceAccountNumber);
+        Shard target = shardFor(targetAccountNumber);
+        if (source == target) {
+            return source.transfer(sourceAccountNumber, targetAccountNumber, amount);
+        }
+        CrossShardTransfer transfer = new CrossShardTransfer(nextTransferId.incrementAndGet(), source, target,
+                targetAccountNumber, amount);
+        try {
+            if (!source.prepareDebit(transfer.id, sourceAccountNumber, amount)) {
+                return false;
+            }
+            transfer.stage = CrossShardTransfer.CREDIT;
+            return transfer.advance(CREDIT_ATTEMPTS);
+        } catch (UncheckedIOException | IllegalStateException e) {
+            inDoubt.put(transfer.id, transfer);
+            return transfer.credited;
+        }
+    }
+
+    // Retries the unfinished steps of every in-doubt transfer and returns how many are still in doubt.
+    public int resolveInDoubt() {
+        for (CrossShardTransfer transfer : inDoubt.values()) {
+            try {
+                transfer.advance(1);
+                inDoubt.remove(transfer.id, transfer);
+            } catch (UncheckedIOException | IllegalStateException e) {
+                // Still failing; the next call tries again.
+            }
+        }
+        return inDoubt.size();
+    }
+
+    public int getInDoubtTransfers() {
+        return inDoubt.size();
+    }
+
+    // Sum over every shard, including funds on hold for unfinished transfers.
+    public long getTotalBalance() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.getTotalBalance();
+        }
+        return total;
+    }
+
+    // Holds and credits not yet committed, over every shard.
+    public int getPendingTransfers() {
+        int pending = 0;
+        for (Shard shard : shards) {
+            pending += shard.getPendingTransfers();
+        }
+        return pending;
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+
+    private static final class CrossShardTransfer {
+        static final int PREPARE = 0; // outcome of prepareDebit unknown
+        static final int CREDIT = 1;
+        static final int COMMIT = 2;
+        static final int ABORT = 3;
+        static final int COMMIT_CREDIT = 4;
+        static final int DONE = 5;
+
+        final long id;
+        final Shard source;
+        final Shard target;
+        final long targetAccountNumber;
+        final long amount;
+        int stage = PREPARE; // guarded by this once the transfer is in doubt
+        boolean credited;
+
+        CrossShardTransfer(long id, Shard source, Shard target, long targetAccountNumber, long amount) {
+            this.id = id;
+            this.source = source;
+            this.target = target;
+            this.targetAccountNumber = targetAccountNumber;
+            this.amount = amount;
+        }
+
+        // Runs the remaining steps, stopping at the first one that fails. Every step is idempotent, so
+        // a step whose reply was lost is simply sent again.
+        synchronized boolean advance(int creditAttempts) {
+            while (stage != DONE) {
+                switch (stage) {
+                    case PREPARE:
+                        source.abortDebit(id); // give back whatever the lost prepare may have held
+                        stage = DONE;
+                        break;
+                    case CREDIT:
+                        credited = credit(creditAttempts);
+                        stage = credited ? COMMIT : ABORT;
+                        break;
+                    case COMMIT:
+                        source.commitDebit(id);
+                        stage = COMMIT_CREDIT;
+                        break;
+                    case ABORT:
+                        source.abortDebit(id);
+                        stage = DONE;
+                        break;
+                    case COMMIT_CREDIT:
+                        target.commitCredit(id);
+                        stage = DONE;
+                        break;
+                    default:
+                        throw new AssertionError("Unknown transfer stage " + stage);
+                }
+            }
+            return credited;
+        }
+
+        private boolean credit(int attempts) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return target.credit(id, targetAccountNumber, amount);
+                } catch (UncheckedIOException | IllegalStateException e) {
+                    if (attempt >= attempts) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+}
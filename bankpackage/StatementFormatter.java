@@ -0,0 +1,70 @@
+package bankpackage;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// Streams transactions as text in the same layout as Transaction.displayTransaction, reusing one line
+// buffer and caching the formatted date for the current second. Not thread-safe: keep one per thread.
+public final class StatementFormatter {
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+
+    private final DateTimeFormatter dateFormat;
+    private final StringBuilder line = new StringBuilder(256);
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedDate;
+
+    public StatementFormatter() {
+        this(ZoneId.systemDefault());
+    }
+
+    public StatementFormatter(ZoneId zone) {
+        this.dateFormat = DATE_FORMAT.withZone(zone);
+    }
+
+    public void writeCustomerHeader(Appendable out, Customer customer) throws IOException {
+        line.setLength(0);
+        line.append("Customer Name: ").append(customer.getCustomerName()).append('\n');
+        line.append("Customer ID: ").append(customer.getCustomerId()).append('\n');
+        line.append("Accounts:\n");
+        out.append(line);
+    }
+
+    public void writeAccountHeader(Appendable out, Account account) throws IOException {
+        writeAccountHeader(out, account.getAccountNumber(), account.getBalance());
+    }
+
+    public void writeAccountHeader(Appendable out, long accountNumber, long balance) throws IOException {
+        line.setLength(0);
+        line.append("Account Number: ").append(accountNumber).append('\n');
+        Money.appendTo(line.append("Balance: ₹"), balance).append('\n');
+        out.append(line);
+    }
+
+    public void writeTransactions(Appendable out, TransactionLog.Slice slice) throws IOException {
+        TransactionLog log = slice.getLog();
+        for (int row = slice.getFromRow(); row < slice.getToRow(); row++) {
+            writeTransaction(out, log, row);
+        }
+    }
+
+    public void writeTransaction(Appendable out, TransactionLog log, int row) throws IOException {
+        line.setLength(0);
+        line.append("Date: ").append(formatDate(log.getTimestamp(row))).append('\n');
+        line.append("Description: ").append(Transaction.describe(log.getType(row))).append('\n');
+        Money.appendTo(line.append("Amount: ₹"), log.getAmount(row)).append('\n');
+        out.append(line);
+    }
+
+    private String formatDate(long timestamp) {
+        long second = Math.floorDiv(timestamp, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedDate = dateFormat.format(Instant.ofEpochSecond(second));
+        }
+        return cachedDate;
+    }
+}
@@ -0,0 +1,121 @@
+package bankpackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Statement run over every customer of a Bank. Workers claim customers in blocks of CLAIM_SIZE and
+// stream each statement straight into their own output file, so memory stays at one formatter and
+// one write buffer per worker however many customers there are. Balances come from
+// Account.readSnapshot, so each listed balance matches the transactions printed under it even while
+// the bank keeps taking traffic.
+public class StatementJob {
+    private static final int CLAIM_SIZE = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Bank bank;
+    private final Path directory;
+    private final int workers;
+
+    public StatementJob(Bank bank, Path directory) {
+        this(bank, directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StatementJob(Bank bank, Path directory, int workers) {
+        this.bank = bank;
+        this.directory = directory;
+        this.workers = Math.max(1, workers);
+    }
+
+    public StatementReport run() throws IOException {
+        return run(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Lists only transactions stamped in [fromMillis, toMillis), e.g. one month; balances are current.
+    public StatementReport run(long fromMillis, long toMillis) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        List<Customer> customers;
+        synchronized (bank) {
+            customers = new ArrayList<>(bank.getCustomers());
+        }
+        AtomicInteger cursor = new AtomicInteger();
+        List<Path> files = new ArrayList<>();
+        List<Future<long[]>> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                Path file = directory.resolve(String.format("statements-%03d.txt", i));
+                files.add(file);
+                results.add(pool.submit(() -> work(file, customers, cursor, fromMillis, toMillis)));
+            }
+            long[] totals = new long[3];
+            for (Future<long[]> result : results) {
+                long[] counts = result.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += counts[i];
+                }
+            }
+            long bytes = 0;
+            for (Path file : files) {
+                bytes += Files.size(file);
+            }
+            return new StatementReport(files, totals[0], totals[1], totals[2], bytes, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Statement run interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Statement run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Returns {statements, accounts, transactions} written.
+    private static long[] work(Path file, List<Customer> customers, AtomicInteger cursor, long fromMillis,
+                               long toMillis) throws IOException {
+        StatementFormatter formatter = new StatementFormatter();
+        AccountSnapshot snapshot = new AccountSnapshot();
+        long statements = 0;
+        long accounts = 0;
+        long transactions = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file),
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            int claimed;
+            while ((claimed = cursor.getAndAdd(CLAIM_SIZE)) < customers.size()) {
+                int end = Math.min(customers.size(), claimed + CLAIM_SIZE);
+                for (int c = claimed; c < end; c++) {
+                    Customer customer = customers.get(c);
+                    Account[] owned;
+                    synchronized (customer) {
+                        owned = customer.getAccounts().toArray(new Account[0]);
+                    }
+                    formatter.writeCustomerHeader(out, customer);
+                    for (Account account : owned) {
+                        account.readSnapshot(snapshot);
+                        formatter.writeAccountHeader(out, account.getAccountNumber(), snapshot.getBalance());
+                        out.write("Transaction History:\n");
+                        TransactionLog history = account.getTransactionHistory();
+                        int rows = snapshot.getTransactionCount();
+                        int first = fromMillis == Long.MIN_VALUE ? 0 : Math.min(rows, history.firstRowAtOrAfter(fromMillis));
+                        int last = toMillis == Long.MAX_VALUE ? rows : Math.min(rows, history.firstRowAtOrAfter(toMillis));
+                        for (int row = first; row < last; row++) {
+                            formatter.writeTransaction(out, history, row);
+                        }
+                        transactions += Math.max(0, last - first);
+                        accounts++;
+                    }
+                    out.write('\n');
+                    statements++;
+                }
+            }
+        }
+        return new long[]{statements, accounts, transactions};
+    }
+}
@@ -0,0 +1,59 @@
+package bankpackage;
+
+import java.nio.file.Path;
+import java.util.*;
+
+public class StatementReport {
+    private final List<Path> files;
+    private final long statements;
+    private final long accounts;
+    private final long transactions;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    StatementReport(List<Path> files, long statements, long accounts, long transactions, long bytes,
+                    long elapsedNanos) {
+        this.files = files;
+        this.statements = statements;
+        this.accounts = accounts;
+        this.transactions = transactions;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // One file per worker; each customer's statement is contiguous within one of them.
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getAccounts() {
+        return accounts;
+    }
+
+    public long getTransactions() {
+        return transactions;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public double getStatementsPerSecond() {
+        return elapsedNanos == 0 ? 0 : statements * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Statements: %,d (%,d accounts, %,d transactions) in %,d ms: %,.0f statements/s, "
+                        + "%.1f MB written to %d files", statements, accounts, transactions, getElapsedMillis(),
+                getStatementsPerSecond(), bytes / (double) (1 << 20), files.size());
+    }
+}
@@ -1,23 +1,59 @@
 package bankpackage;
 
-import java.text.DecimalFormat;
 import java.util.*;
 
+// A lightweight view over one row of a TransactionLog.
 public class Transaction {
-    private Date date;
-    private String description;
-    private double amount;
+    public static final byte DEPOSIT = 0;
+    public static final byte WITHDRAWAL = 1;
+    public static final byte OVERDRAFT_WITHDRAWAL = 2;
+    public static final byte INTEREST = 3;
 
-    public Transaction(Date date, String description, double amount) {
-        this.date = date;
-        this.description = description;
-        this.amount = amount;
+    private static final String[] DESCRIPTIONS = {"Deposit", "Withdrawal", "Withdrawal (Overdraft)", "Interest"};
+
+    private final TransactionLog log;
+    private int row;
+
+    Transaction(TransactionLog log, int row) {
+        this.log = log;
+        this.row = row;
+    }
+
+    void moveTo(int row) {
+        this.row = row;
+    }
+
+    public static String describe(byte type) {
+        return DESCRIPTIONS[type];
+    }
+
+    public int getSequence() {
+        return row;
+    }
+
+    public long getTimestamp() {
+        return log.getTimestamp(row);
+    }
+
+    public Date getDate() {
+        return new Date(getTimestamp());
+    }
+
+    public byte getType() {
+        return log.getType(row);
+    }
+
+    public String getDescription() {
+        return describe(getType());
+    }
+
+    public long getAmount() {
+        return log.getAmount(row);
     }
 
     public void displayTransaction() {
-        DecimalFormat df = new DecimalFormat("#.##");
-        System.out.println("Date: " + date);
-        System.out.println("Description: " + description);
-        System.out.println("Amount: ₹" + df.format(amount));
+        System.out.println("Date: " + getDate());
+        System.out.println("Description: " + getDescription());
+        System.out.println("Amount: ₹" + Money.format(getAmount()));
     }
 }
@@ -0,0 +1,48 @@
+package bankpackage;
+
+import java.util.concurrent.*;
+
+public class TransactionEngine {
+    private final Bank bank;
+    private final ExecutorService executor;
+
+    public TransactionEngine(Bank bank) {
+        this(bank, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TransactionEngine(Bank bank, int threads) {
+        this.bank = bank;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    public Future<Boolean> deposit(long accountNumber, long amount) {
+        return executor.submit(() -> {
+            Account account = bank.findAccount(accountNumber);
+            if (account == null) {
+                return false;
+            }
+            account.deposit(amount);
+            return true;
+        });
+    }
+
+    public Future<Boolean> withdraw(long accountNumber, long amount) {
+        return executor.submit(() -> {
+            Account account = bank.findAccount(accountNumber);
+            return account != null && account.withdraw(amount);
+        });
+    }
+
+    public Future<Boolean> transfer(long sourceAccountNumber, long targetAccountNumber, long amount) {
+        return executor.submit(() -> bank.transfer(sourceAccountNumber, targetAccountNumber, amount));
+    }
+
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+}
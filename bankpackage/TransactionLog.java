@@ -0,0 +1,276 @@
+package bankpackage;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Column-oriented, append-only history: one row per transaction spread across primitive chunks.
+// Rows are written by a single thread at a time (the owning account's lock holder); the volatile
+// size publishes each row to readers, so iteration never needs the lock.
+//
+// With a HistoryArchive attached, all but the newest few chunks are moved into a memory-mapped
+// segment file as they fill up, so the heap holds a bounded number of rows per account, plus a small
+// per-chunk overhead for the spilled ones (see HistoryArchive). Readers see one sequence either way:
+// a chunk is swapped for its mapped copy in a single reference write, and the copy is immutable.
+public final class TransactionLog implements Iterable<Transaction> {
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int FIRST_CHUNK_SIZE = 8;
+
+    private Chunk[] chunks = new Chunk[4];
+    private volatile int size;
+    private HistoryArchive archive; // guarded by the owning account's lock
+    private long archiveKey;
+    private int spilledChunks; // chunks [0, spilledChunks) live in the archive
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Number of rows currently held on the heap.
+    public int heapRows() {
+        return size - Math.min(size, spilledChunks << CHUNK_SHIFT);
+    }
+
+    // Same locking as append. Attaching spills whatever is already old enough.
+    void setArchive(HistoryArchive archive, long archiveKey) {
+        this.archive = archive;
+        this.archiveKey = archiveKey;
+        spillColdChunks();
+    }
+
+    // Returns the timestamp actually stored for the row.
+    long append(long timestamp, byte type, long amount) {
+        int row = size;
+        int chunkIndex = row >>> CHUNK_SHIFT;
+        if (chunkIndex == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkIndex * 2);
+        }
+        int offset = row & CHUNK_MASK;
+        Chunk chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new Chunk(chunkIndex == 0 ? FIRST_CHUNK_SIZE : CHUNK_SIZE);
+            chunks[chunkIndex] = chunk;
+        } else if (offset == chunk.timestamps.length) {
+            // Only the first chunk starts small, so accounts with little history stay cheap.
+            chunk.grow(Math.min(offset * 2, CHUNK_SIZE));
+        }
+        // Keep rows time-ordered even if the wall clock steps backwards.
+        if (row > 0 && timestamp < getTimestamp(row - 1)) {
+            timestamp = getTimestamp(row - 1);
+        }
+        chunk.timestamps[offset] = timestamp;
+        chunk.types[offset] = type;
+        chunk.amounts[offset] = amount;
+        size = row + 1;
+        if (offset == CHUNK_MASK && archive != null) {
+            spillColdChunks();
+        }
+        return timestamp;
+    }
+
+    // Adopts a full chunk already in HistoryArchive's layout (e.g. mapped from a BankImage) as the
+    // next CHUNK_SIZE rows, without copying it. Only while every earlier chunk is mapped as well.
+    void appendMappedChunk(ByteBuffer chunk) {
+        int chunkIndex = size >>> CHUNK_SHIFT;
+        if ((size & CHUNK_MASK) != 0 || spilledChunks != chunkIndex) {
+            throw new IllegalStateException("Mapped chunks must come before any heap rows");
+        }
+        if (chunkIndex == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkIndex * 2);
+        }
+        chunks[chunkIndex] = new Chunk(chunk);
+        spilledChunks++;
+        size += CHUNK_SIZE;
+    }
+
+    // Spills on the appending thread, once per CHUNK_SIZE rows; each spill is a single copy into
+    // an already mapped window.
+    private void spillColdChunks() {
+        if (archive == null) {
+            return;
+        }
+        int fullChunks = size >>> CHUNK_SHIFT;
+        while (spilledChunks < fullChunks - archive.getHotChunks()) {
+            Chunk hot = chunks[spilledChunks];
+            ByteBuffer mapped = archive.spill(archiveKey, hot.timestamps, hot.types, hot.amounts);
+            if (mapped == null) {
+                archive = null; // closed; the remaining chunks stay on the heap
+                return;
+            }
+            chunks[spilledChunks] = new Chunk(mapped);
+            spilledChunks++;
+        }
+    }
+
+    public long getTimestamp(int row) {
+        Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+        int offset = row & CHUNK_MASK;
+        return chunk.mapped == null ? chunk.timestamps[offset] : chunk.mapped.getLong(offset << 3);
+    }
+
+    public byte getType(int row) {
+        Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+        int offset = row & CHUNK_MASK;
+        return chunk.mapped == null ? chunk.types[offset] : chunk.mapped.get((CHUNK_SIZE << 4) + offset);
+    }
+
+    public long getAmount(int row) {
+        Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+        int offset = row & CHUNK_MASK;
+        return chunk.mapped == null ? chunk.amounts[offset] : chunk.mapped.getLong((CHUNK_SIZE + offset) << 3);
+    }
+
+    public Transaction get(int row) {
+        Objects.checkIndex(row, size);
+        return new Transaction(this, row);
+    }
+
+    // Index of the first row stamped at or after timestamp, or size() if there is none.
+    // Rows are appended in time order, so this is a binary search.
+    public int firstRowAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTimestamp(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public Slice slice(int fromRow, int toRow) {
+        Objects.checkFromToIndex(fromRow, toRow, size);
+        return new Slice(this, fromRow, toRow);
+    }
+
+    // Rows stamped in [fromMillis, toMillis).
+    public Slice between(long fromMillis, long toMillis) {
+        int end = size;
+        int from = firstRowAtOrAfter(fromMillis);
+        int to = Math.max(from, firstRowAtOrAfter(toMillis));
+        return new Slice(this, Math.min(from, end), Math.min(to, end));
+    }
+
+    // Up to limit rows starting at cursor, a row sequence number; pass the previous page's
+    // getNextCursor() to continue.
+    public Slice page(int cursor, int limit) {
+        int end = size;
+        int from = Math.min(Math.max(cursor, 0), end);
+        return new Slice(this, from, (int) Math.min((long) from + Math.max(limit, 0), end));
+    }
+
+    public Slice latest(int count) {
+        int end = size;
+        return new Slice(this, Math.max(0, end - Math.max(count, 0)), end);
+    }
+
+    // The returned iterator hands back the same Transaction view for every row; copy out any
+    // values that must outlive the next call to next().
+    @Override
+    public Iterator<Transaction> iterator() {
+        return rows(0, size);
+    }
+
+    private Iterator<Transaction> rows(int from, int end) {
+        Transaction view = new Transaction(this, -1);
+        return new Iterator<Transaction>() {
+            private int row = from;
+
+            @Override
+            public boolean hasNext() {
+                return row < end;
+            }
+
+            @Override
+            public Transaction next() {
+                if (row >= end) {
+                    throw new NoSuchElementException();
+                }
+                view.moveTo(row++);
+                return view;
+            }
+        };
+    }
+
+    // A fixed window of rows; later appends never change what a Slice covers.
+    public static final class Slice implements Iterable<Transaction> {
+        private final TransactionLog log;
+        private final int fromRow;
+        private final int toRow;
+
+        Slice(TransactionLog log, int fromRow, int toRow) {
+            this.log = log;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        public TransactionLog getLog() {
+            return log;
+        }
+
+        public int getFromRow() {
+            return fromRow;
+        }
+
+        // Exclusive; also the cursor for the page after this one.
+        public int getToRow() {
+            return toRow;
+        }
+
+        public int getNextCursor() {
+            return toRow;
+        }
+
+        public int size() {
+            return toRow - fromRow;
+        }
+
+        public boolean isEmpty() {
+            return toRow == fromRow;
+        }
+
+        public Transaction get(int index) {
+            Objects.checkIndex(index, size());
+            return new Transaction(log, fromRow + index);
+        }
+
+        // Reuses one Transaction view for every row, like TransactionLog.iterator().
+        @Override
+        public Iterator<Transaction> iterator() {
+            return log.rows(fromRow, toRow);
+        }
+    }
+
+    // Either heap columns still being written, or an immutable mapped copy of a full chunk.
+    private static final class Chunk {
+        long[] timestamps;
+        byte[] types;
+        long[] amounts;
+        final ByteBuffer mapped;
+
+        Chunk(int capacity) {
+            timestamps = new long[capacity];
+            types = new byte[capacity];
+            amounts = new long[capacity];
+            mapped = null;
+        }
+
+        Chunk(ByteBuffer mapped) {
+            this.mapped = mapped;
+        }
+
+        void grow(int capacity) {
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            types = Arrays.copyOf(types, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+    }
+}
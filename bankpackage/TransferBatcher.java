@@ -0,0 +1,316 @@
+package bankpackage;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Opt-in pipeline stage for transfer bursts. Submitted transfers are collected into batches of at
+// most maxBatchSize, waiting no longer than maxDelay for a batch to fill, and each batch is applied in
+// one pass on a background thread:
+//
+//   - every account the batch touches is locked once, in account-number order (the same order
+//     Account.transferFunds uses, so the two never deadlock);
+//   - transfers are checked in submission order against the balance as netted so far, with the
+//     same rules as withdraw (including CurrentAccount overdraft limits);
+//   - each accepted transfer still gets its own pair of history rows and journal record, but every
+//     account's balance and the bank aggregates are updated once with the netted amount.
+//
+// Outcomes are the same as calling Bank.transfer for each request in submission order.
+public class TransferBatcher implements Closeable {
+    private final Bank bank;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread worker;
+    private Pending pending; // guarded by lock
+    private Pending batch;
+    private boolean closed; // guarded by lock
+    private boolean started; // guarded by lock
+
+    // Per-batch scratch state, only touched by the worker.
+    private final HashMap<Account, Integer> slots = new HashMap<>();
+    private Account[] accounts;
+    private long[] projected;
+    private long[] net;
+    private Account[] sources;
+    private Account[] targets;
+    private boolean[] accepted;
+    private int decided; // transfers of the batch accepted or declined so far
+
+    public TransferBatcher(Bank bank) {
+        this(bank, 1024, 200, TimeUnit.MICROSECONDS);
+    }
+
+    public TransferBatcher(Bank bank, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        this.bank = bank;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.pending = new Pending(maxBatchSize);
+        this.batch = new Pending(maxBatchSize);
+        this.accounts = new Account[2 * maxBatchSize];
+        this.projected = new long[2 * maxBatchSize];
+        this.net = new long[2 * maxBatchSize];
+        this.sources = new Account[maxBatchSize];
+        this.targets = new Account[maxBatchSize];
+        this.accepted = new boolean[maxBatchSize];
+        this.worker = new Thread(this::run, "transfer-batcher");
+        this.worker.setDaemon(true);
+    }
+
+    // Completes with true once the transfer has been applied, false if it was declined, the amount is
+    // not positive or either account does not exist. Blocks while a full batch is already waiting.
+    public CompletableFuture<Boolean> submit(long sourceAccountNumber, long targetAccountNumber, long amount) {
+        if (amount <= 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        lock.lock();
+        try {
+            while (pending.count == maxBatchSize && !closed) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                result.completeExceptionally(new IllegalStateException("Transfer batcher is closed"));
+                return result;
+            }
+            if (!started) {
+                started = true;
+                worker.start();
+            }
+            pending.add(sourceAccountNumber, targetAccountNumber, amount, result);
+            if (pending.count == 1 || pending.count == maxBatchSize) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    // An Error stops the worker; the batcher is then closed and every waiting transfer fails with it,
+    // so no submitter is left blocked.
+    private void run() {
+        try {
+            applyBatches();
+        } catch (Error e) {
+            lock.lock();
+            try {
+                closed = true;
+                failBatch(batch, e);
+                failBatch(pending, e);
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void applyBatches() {
+        boolean done = false;
+        while (!done) {
+            lock.lock();
+            try {
+                while (pending.count == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                // Linger so a burst can fill the batch, unless it is already full.
+                long remaining = maxDelayNanos;
+                while (pending.count < maxBatchSize && !closed && remaining > 0) {
+                    try {
+                        remaining = notEmpty.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        // Keep going; close() is the only way to stop the worker.
+                    }
+                }
+                Pending full = pending;
+                pending = batch;
+                batch = full;
+                notFull.signalAll();
+                done = closed && batch.count == 0;
+            } finally {
+                lock.unlock();
+            }
+            if (batch.count > 0) {
+                try {
+                    apply(batch);
+                } catch (RuntimeException e) {
+                    failBatch(batch, e);
+                }
+                batch.clear();
+                decided = 0;
+            }
+        }
+    }
+
+    // Transfers decided before the failure stand (their balances caught up when the accounts were
+    // unlocked); only the rest of the batch fails. Results already completed keep their outcome.
+    private void failBatch(Pending batch, Throwable failure) {
+        for (int i = 0; i < batch.count; i++) {
+            if (i < decided) {
+                batch.results[i].complete(accepted[i]);
+            } else {
+                batch.results[i].completeExceptionally(failure);
+            }
+        }
+        decided = 0;
+        Arrays.fill(sources, null);
+        Arrays.fill(targets, null);
+        Arrays.fill(accounts, null);
+        slots.clear();
+    }
+
+    private void apply(Pending batch) {
+        int count = batch.count;
+        int accountCount = 0;
+        decided = 0;
+        for (int i = 0; i < count; i++) {
+            sources[i] = bank.findAccount(batch.sources[i]);
+            targets[i] = bank.findAccount(batch.targets[i]);
+            if (sources[i] == null || targets[i] == null) {
+                sources[i] = null;
+                continue;
+            }
+            accountCount = slot(sources[i], accountCount);
+            accountCount = slot(targets[i], accountCount);
+        }
+        Arrays.sort(accounts, 0, accountCount, Comparator.comparingLong(Account::getAccountNumber));
+        for (int i = 0; i < accountCount; i++) {
+            slots.put(accounts[i], i);
+            net[i] = 0;
+        }
+
+        Journal journal = bank.beginMutation();
+        int locked = 0;
+        try {
+            for (; locked < accountCount; locked++) {
+                accounts[locked].lockForUpdate();
+            }
+            for (int i = 0; i < accountCount; i++) {
+                projected[i] = accounts[i].getBalance();
+            }
+            for (; decided < count; decided++) {
+                int i = decided;
+                accepted[i] = false;
+                if (sources[i] == null) {
+                    continue;
+                }
+                int source = slots.get(sources[i]);
+                int target = slots.get(targets[i]);
+                long amount = batch.amounts[i];
+                if (!sources[i].canWithdraw(projected[source], amount)) {
+                    continue;
+                }
+                byte type = sources[i].withdrawalType();
+                sources[i].setJournalDeferred(true);
+                targets[i].setJournalDeferred(true);
+                long timestamp = sources[i].record(type, -amount);
+                targets[i].record(Transaction.DEPOSIT, amount);
+                if (journal != null) {
+                    journal.logTransfer(sources[i].getAccountNumber(), targets[i].getAccountNumber(), type, amount,
+                            timestamp);
+                }
+                accepted[i] = true;
+                projected[source] -= amount;
+                projected[target] += amount;
+                net[source] -= amount;
+                net[target] += amount;
+            }
+        } finally {
+            // Balances catch up with whatever history was recorded, even if the pass failed part way.
+            for (int i = 0; i < locked; i++) {
+                accounts[i].setJournalDeferred(false);
+                if (net[i] != 0) {
+                    accounts[i].adjustBalance(net[i]);
+                }
+            }
+            while (locked > 0) {
+                accounts[--locked].unlockAfterUpdate();
+            }
+            Journal.endMutation(journal);
+            Arrays.fill(accounts, 0, accountCount, null);
+            slots.clear();
+        }
+
+        BankMetrics metrics = bank.getMetrics();
+        for (int i = 0; i < count; i++) {
+            Account source = sources[i];
+            if (metrics != null) {
+                metrics.transferred(accepted[i]);
+            }
+            if (source != null) {
+                source.publishWithdrawal(accepted[i], batch.amounts[i]);
+                source.events().publish(accepted[i] ? AccountEvent.TRANSFER_COMPLETED : AccountEvent.TRANSFER_FAILED,
+                        source.getAccountNumber(), batch.amounts[i]);
+            }
+            sources[i] = null;
+            targets[i] = null;
+            batch.results[i].complete(accepted[i]);
+        }
+    }
+
+    private int slot(Account account, int accountCount) {
+        if (slots.putIfAbsent(account, accountCount) == null) {
+            accounts[accountCount++] = account;
+        }
+        return accountCount;
+    }
+
+    // Applies everything already submitted, then stops the worker.
+    @Override
+    public void close() {
+        boolean running;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            running = started;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (running) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Pending {
+        final long[] sources;
+        final long[] targets;
+        final long[] amounts;
+        final CompletableFuture<Boolean>[] results;
+        int count;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Pending(int capacity) {
+            sources = new long[capacity];
+            targets = new long[capacity];
+            amounts = new long[capacity];
+            results = new CompletableFuture[capacity];
+        }
+
+        void add(long source, long target, long amount, CompletableFuture<Boolean> result) {
+            sources[count] = source;
+            targets[count] = target;
+            amounts[count] = amount;
+            results[count++] = result;
+        }
+
+        void clear() {
+            Arrays.fill(results, 0, count, null);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package bankpackage;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// End-to-end load test for Bank. Opens one account per customer (a mix of SavingsAccount and
+// CurrentAccount), then has each thread replay a seeded stream of deposits, withdrawals, overdraft
+// hits and transfers. Accounts are picked with a Zipf distribution, so a few hot accounts take most
+// of the traffic, and end-of-day interest accrual runs in between. Reports throughput and latency
+// percentiles per operation, then proves no money was created or lost:
+//
+//   - every account's balance equals the sum of its transaction history;
+//   - the bank aggregates equal the sum of all balances;
+//   - that sum equals the opening deposits plus acknowledged deposits, minus acknowledged
+//     withdrawals, plus accrued interest (transfers must net to zero).
+//
+//   java bankpackage.WorkloadGenerator [customers=100000] [operations=2000000] [threads=8] [skew=1.1]
+//                                      [seed=42] [interestRuns=3]
+public class WorkloadGenerator {
+    private static final long FIRST_ACCOUNT = 1_000_000L;
+    private static final double SAVINGS_FRACTION = 0.6;
+    private static final long OPENING_BALANCE = Money.ofRupees(5_000);
+    private static final long OVERDRAFT_LIMIT = Money.ofRupees(2_000);
+
+    private static final int DEPOSIT = 0;
+    private static final int WITHDRAW = 1;
+    private static final int OVERDRAFT = 2;
+    private static final int TRANSFER = 3;
+    private static final String[] OPERATIONS = {"deposit", "withdraw", "overdraft", "transfer"};
+    // Cumulative share of each operation, in percent.
+    private static final int[] MIX = {30, 55, 65, 100};
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        double skew = args.length > 3 ? Double.parseDouble(args[3]) : 1.1;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        int interestRuns = args.length > 5 ? Integer.parseInt(args[5]) : 3;
+
+        long start = System.nanoTime();
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        SplittableRandom setup = new SplittableRandom(seed);
+        for (int i = 0; i < customers; i++) {
+            Customer customer = new Customer(i, "Customer " + i);
+            bank.addCustomer(customer);
+            Account account = setup.nextDouble() < SAVINGS_FRACTION
+                    ? new SavingsAccount(FIRST_ACCOUNT + i, new BigDecimal("0.01"))
+                    : new CurrentAccount(FIRST_ACCOUNT + i, OVERDRAFT_LIMIT);
+            customer.addAccount(account);
+            account.deposit(OPENING_BALANCE);
+        }
+        long opening = OPENING_BALANCE * customers;
+        ZipfSampler accounts = new ZipfSampler(customers, skew, seed);
+        System.out.printf("Created %,d customers in %,d ms%n", customers,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        LatencyHistogram[] latency = new LatencyHistogram[OPERATIONS.length];
+        LongAdder[] declined = new LongAdder[OPERATIONS.length];
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latency[i] = new LatencyHistogram();
+            declined[i] = new LongAdder();
+        }
+        LongAdder deposited = new LongAdder();
+        LongAdder withdrawn = new LongAdder();
+        long[] interest = new long[1];
+        int perThread = operations / threads;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed * 31 + thread);
+                LocalDate businessDate = LocalDate.of(2024, 1, 1);
+                int nextInterestRun = 1;
+                for (int i = 0; i < perThread; i++) {
+                    // The first thread also runs end-of-day accrual at even intervals.
+                    if (thread == 0 && nextInterestRun <= interestRuns
+                            && i == (long) perThread * nextInterestRun / (interestRuns + 1)) {
+                        interest[0] += bank.accrueInterest(businessDate.plusDays(nextInterestRun++)).getTotalInterest();
+                    }
+                    int roll = random.nextInt(100);
+                    int operation = 0;
+                    while (roll >= MIX[operation]) {
+                        operation++;
+                    }
+                    Account account = bank.findAccount(FIRST_ACCOUNT + accounts.next(random));
+                    long amount = Money.ofRupees(1 + random.nextInt(500));
+                    long opStart = System.nanoTime();
+                    boolean ok;
+                    switch (operation) {
+                        case DEPOSIT:
+                            account.deposit(amount);
+                            deposited.add(amount);
+                            ok = true;
+                            break;
+                        case WITHDRAW:
+                            ok = account.withdraw(amount);
+                            if (ok) {
+                                withdrawn.add(amount);
+                            }
+                            break;
+                        case OVERDRAFT:
+                            // Aim past the balance so current accounts dip into (or beyond) their overdraft.
+                            amount = Math.max(0, account.getBalance()) + Money.ofRupees(1 + random.nextInt(3_000));
+                            ok = account.withdraw(amount);
+                            if (ok) {
+                                withdrawn.add(amount);
+                            }
+                            break;
+                        case TRANSFER:
+                            Account target = bank.findAccount(FIRST_ACCOUNT + accounts.next(random));
+                            ok = account.transferFunds(target, amount);
+                            break;
+                        default:
+                            throw new IllegalStateException();
+                    }
+                    latency[operation].record(System.nanoTime() - opStart);
+                    if (!ok) {
+                        declined[operation].increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        System.out.printf("%,d operations on %d threads in %,d ms: %,.0f ops/s (zipf skew %.2f)%n",
+                (long) perThread * threads, threads, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                perThread * (double) threads * 1e9 / elapsed, skew);
+        System.out.println("operation   declined  latency");
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            System.out.printf("%-10s %9d  %s%n", OPERATIONS[i], declined[i].sum(), latency[i]);
+        }
+        System.out.printf("interest runs: %d, interest accrued ₹%s%n", interestRuns, Money.format(interest[0]));
+
+        long sumOfBalances = 0;
+        long mismatchedLedgers = 0;
+        for (int i = 0; i < customers; i++) {
+            Account account = bank.findAccount(FIRST_ACCOUNT + i);
+            long ledger = 0;
+            TransactionLog history = account.getTransactionHistory();
+            for (int row = 0; row < history.size(); row++) {
+                ledger += history.getAmount(row);
+            }
+            if (ledger != account.getBalance()) {
+                mismatchedLedgers++;
+            }
+            sumOfBalances += account.getBalance();
+        }
+        long expected = opening + deposited.sum() - withdrawn.sum() + interest[0];
+        long aggregate = bank.getAggregates().getTotalBalance();
+        System.out.printf("ledgers match balances: %s (%d mismatched)%n", mismatchedLedgers == 0, mismatchedLedgers);
+        System.out.printf("aggregates match balances: %s%n", aggregate == sumOfBalances);
+        System.out.printf("money conserved: %s (expected ₹%s, found ₹%s)%n", sumOfBalances == expected,
+                Money.format(expected), Money.format(sumOfBalances));
+        if (mismatchedLedgers != 0 || aggregate != sumOfBalances || sumOfBalances != expected) {
+            System.exit(1);
+        }
+    }
+
+    // Draws account indexes with P(rank k) proportional to 1 / k^skew. Ranks are shuffled onto
+    // account indexes so the hot accounts are spread across the number range.
+    static final class ZipfSampler {
+        private final double[] cumulative;
+        private final int[] accountForRank;
+
+        ZipfSampler(int size, double skew, long seed) {
+            cumulative = new double[size];
+            double total = 0;
+            for (int rank = 0; rank < size; rank++) {
+                total += 1 / Math.pow(rank + 1, skew);
+                cumulative[rank] = total;
+            }
+            for (int rank = 0; rank < size; rank++) {
+                cumulative[rank] /= total;
+            }
+            accountForRank = new int[size];
+            SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+            for (int i = 0; i < size; i++) {
+                int j = random.nextInt(i + 1);
+                accountForRank[i] = accountForRank[j];
+                accountForRank[j] = i;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            return accountForRank[Math.min(rank, accountForRank.length - 1)];
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package bankpackage.benchmarks;
+
+import bankpackage.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of the core balance operations. The PerThread variants give every thread its own
+// accounts (disjoint work, should scale with cores); the Shared variants make all threads fight over
+// a handful of accounts. Accounts are rebuilt each iteration so their history stays bounded, and
+// belong to a bank whose event sink discards outcome messages.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+    private static final long LARGE = Money.ofRupees(1_000_000_000_000L);
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        Account account;
+        Account target;
+        CurrentAccount current;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            Customer customer = quietCustomer();
+            account = new Account(1);
+            target = new Account(2);
+            current = new CurrentAccount(3, LARGE);
+            customer.addAccount(account);
+            customer.addAccount(target);
+            customer.addAccount(current);
+            account.deposit(LARGE);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        static final int ACCOUNTS = 16;
+        Account[] accounts;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            Customer customer = quietCustomer();
+            accounts = new Account[ACCOUNTS];
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accounts[i] = new Account(i);
+                customer.addAccount(accounts[i]);
+                accounts[i].deposit(LARGE);
+            }
+        }
+
+        Account pick() {
+            return accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        }
+    }
+
+    @Benchmark
+    public void deposit(PerThread state) {
+        state.account.deposit(100);
+    }
+
+    @Benchmark
+    public boolean withdraw(PerThread state) {
+        return state.account.withdraw(1);
+    }
+
+    @Benchmark
+    public boolean currentAccountWithdraw(PerThread state) {
+        return state.current.withdraw(1);
+    }
+
+    @Benchmark
+    public boolean transferFunds(PerThread state) {
+        return state.account.transferFunds(state.target, 1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void depositDisjoint(PerThread state) {
+        state.account.deposit(100);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean transferDisjoint(PerThread state) {
+        return state.account.transferFunds(state.target, 1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void depositContended(Shared state) {
+        state.pick().deposit(100);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean transferContended(Shared state) {
+        return state.pick().transferFunds(state.pick(), 1);
+    }
+
+    static Customer quietCustomer() {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        Customer customer = new Customer(1, "Benchmark");
+        bank.addCustomer(customer);
+        return customer;
+    }
+}
@@ -0,0 +1,63 @@
+package bankpackage.benchmarks;
+
+import bankpackage.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Lookup latency as the customer population grows; every customer holds one account.
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int customers;
+
+    private Bank bank;
+    private int[] customerIds;
+    private long[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bank = new Bank();
+        for (int i = 0; i < customers; i++) {
+            Customer customer = new Customer(i, "Customer " + i);
+            bank.addCustomer(customer);
+            customer.addAccount(new Account(1_000_000_000L + i));
+        }
+        Random random = new Random(42);
+        customerIds = new int[PROBES];
+        accountNumbers = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            int customer = random.nextInt(customers);
+            customerIds[i] = customer;
+            accountNumbers[i] = 1_000_000_000L + customer;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance() {
+            next = (next + 1) & (PROBES - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Customer findCustomerById(Cursor cursor) {
+        return bank.findCustomerById(customerIds[cursor.advance()]);
+    }
+
+    @Benchmark
+    public Account findAccount(Cursor cursor) {
+        return bank.findAccount(accountNumbers[cursor.advance()]);
+    }
+}
@@ -0,0 +1,66 @@
+package bankpackage.benchmarks;
+
+import bankpackage.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of BankMetrics on the hot paths: the same operations with metrics off (the default) and on.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+    private static final long LARGE = Money.ofRupees(1_000_000_000_000L);
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private Bank bank;
+    private Account account;
+    private Account target;
+    private CurrentAccount current;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        bank.setMetrics(metrics ? new BankMetrics() : null);
+        Customer customer = new Customer(1, "Benchmark");
+        bank.addCustomer(customer);
+        account = new Account(1);
+        target = new Account(2);
+        current = new CurrentAccount(3, LARGE);
+        customer.addAccount(account);
+        customer.addAccount(target);
+        customer.addAccount(current);
+        account.deposit(LARGE);
+    }
+
+    @Benchmark
+    public void deposit() {
+        account.deposit(100);
+    }
+
+    @Benchmark
+    public boolean withdraw() {
+        return account.withdraw(1);
+    }
+
+    @Benchmark
+    public boolean currentAccountWithdraw() {
+        return current.withdraw(1);
+    }
+
+    @Benchmark
+    public boolean transferFunds() {
+        return account.transferFunds(target, 1);
+    }
+
+    @Benchmark
+    public Account findAccount() {
+        return bank.findAccount(2);
+    }
+}
@@ -0,0 +1,55 @@
+package bankpackage.benchmarks;
+
+import bankpackage.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Lock-free reads under write traffic: readers take Account.readSnapshot while one writer keeps
+// depositing and withdrawing on the same account. Raise the reader count with -tg <readers>,1.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    @State(Scope.Group)
+    public static class Target {
+        Account account;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            Customer customer = AccountBenchmark.quietCustomer();
+            account = new Account(1);
+            customer.addAccount(account);
+            account.deposit(Money.ofRupees(1_000_000));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        final AccountSnapshot snapshot = new AccountSnapshot();
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(3)
+    public long readSnapshot(Target target, Reader reader) {
+        return target.account.readSnapshot(reader.snapshot).getVersion();
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public boolean write(Target target) {
+        target.account.deposit(1);
+        return target.account.withdraw(1);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(3)
+    public long readSnapshotUncontended(Target target, Reader reader) {
+        return target.account.readSnapshot(reader.snapshot).getVersion();
+    }
+}
@@ -0,0 +1,79 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class AccountIndexTest {
+    @Test
+    void putGetAndRemove() {
+        AccountIndex index = new AccountIndex();
+        Account first = new Account(42);
+        assertNull(index.get(42));
+        assertNull(index.putIfAbsent(first));
+        assertSame(first, index.get(42));
+        assertSame(first, index.putIfAbsent(new Account(42)));
+        assertSame(first, index.get(42));
+
+        assertFalse(index.remove(new Account(42))); // same number, different account
+        assertTrue(index.remove(first));
+        assertFalse(index.remove(first));
+        assertNull(index.get(42));
+
+        Account second = new Account(42);
+        assertNull(index.putIfAbsent(second));
+        assertSame(second, index.get(42));
+    }
+
+    @Test
+    void reinsertAfterRemoveAcrossResizes() {
+        AccountIndex index = new AccountIndex();
+        Account[] accounts = new Account[10_000];
+        for (int i = 0; i < accounts.length; i++) {
+            // Multiples of a large stride, so clustering in the probe sequence is exercised too.
+            accounts[i] = new Account(i * 4_096L);
+            assertNull(index.putIfAbsent(accounts[i]));
+        }
+        for (int i = 0; i < accounts.length; i += 2) {
+            assertTrue(index.remove(accounts[i]));
+        }
+        for (int i = 0; i < accounts.length; i++) {
+            assertEquals(i % 2 == 0 ? null : accounts[i], index.get(i * 4_096L));
+        }
+        // Reinserting the removed numbers grows the table again and drops the removal markers.
+        for (int i = 0; i < accounts.length; i += 2) {
+            accounts[i] = new Account(i * 4_096L);
+            assertNull(index.putIfAbsent(accounts[i]));
+        }
+        for (int i = 0; i < accounts.length; i++) {
+            assertSame(accounts[i], index.get(i * 4_096L));
+        }
+        assertEquals(accounts.length, index.values().size());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomChurn() {
+        AccountIndex index = new AccountIndex();
+        HashMap<Long, Account> reference = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 200_000; i++) {
+            long number = random.nextInt(5_000);
+            Account present = reference.get(number);
+            if (random.nextBoolean()) {
+                Account account = new Account(number);
+                assertSame(present, index.putIfAbsent(account));
+                reference.putIfAbsent(number, account);
+            } else {
+                assertEquals(present != null, present != null && index.remove(present));
+                reference.remove(number);
+            }
+            assertSame(reference.get(number), index.get(number));
+        }
+        assertEquals(reference.size(), index.values().size());
+        for (Account account : index.values()) {
+            assertSame(reference.get(account.getAccountNumber()), account);
+        }
+    }
+}
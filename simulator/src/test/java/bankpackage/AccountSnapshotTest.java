@@ -0,0 +1,90 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class AccountSnapshotTest {
+    @Test
+    void balanceMatchesHistoryUnderConcurrentWriters() throws Exception {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        Customer customer = new Customer(1, "Asha");
+        bank.addCustomer(customer);
+        Account account = new CurrentAccount(1, Money.ofRupees(200));
+        Account other = new Account(2);
+        customer.addAccount(account);
+        customer.addAccount(other);
+        account.deposit(Money.ofRupees(1_000));
+        other.deposit(Money.ofRupees(1_000));
+
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        Future<?> direct = writers.submit(() -> {
+            SplittableRandom random = new SplittableRandom(1);
+            while (!stop.get()) {
+                long amount = Money.ofRupees(1 + random.nextInt(300));
+                switch (random.nextInt(4)) {
+                    case 0:
+                        account.deposit(amount);
+                        break;
+                    case 1:
+                        account.withdraw(amount);
+                        break;
+                    case 2:
+                        account.transferFunds(other, amount);
+                        break;
+                    default:
+                        other.transferFunds(account, amount);
+                        break;
+                }
+            }
+        });
+        Future<?> batched = writers.submit(() -> {
+            SplittableRandom random = new SplittableRandom(2);
+            try (TransferBatcher batcher = new TransferBatcher(bank, 32, 50, TimeUnit.MICROSECONDS)) {
+                while (!stop.get()) {
+                    long amount = Money.ofRupees(1 + random.nextInt(300));
+                    if (random.nextBoolean()) {
+                        batcher.submit(1, 2, amount);
+                    } else {
+                        batcher.submit(2, 1, amount);
+                    }
+                }
+            }
+        });
+
+        AccountSnapshot snapshot = new AccountSnapshot();
+        TransactionLog history = account.getTransactionHistory();
+        // Rows never change once appended, so the ledger is summed incrementally.
+        long ledger = 0;
+        int summed = 0;
+        int lastCount = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        int reads = 0;
+        try {
+            while (System.nanoTime() < deadline || reads < 10_000) {
+                account.readSnapshot(snapshot);
+                reads++;
+                assertEquals(1, snapshot.getAccountNumber());
+                assertEquals(0, snapshot.getVersion() & 1, "snapshot taken mid-update");
+                int count = snapshot.getTransactionCount();
+                assertTrue(count >= lastCount, "history shrank");
+                lastCount = count;
+                for (; summed < count; summed++) {
+                    ledger += history.getAmount(summed);
+                }
+                assertEquals(ledger, snapshot.getBalance(), "balance after " + count + " rows");
+            }
+        } finally {
+            stop.set(true);
+            writers.shutdown();
+        }
+        direct.get();
+        batched.get();
+        assertTrue(lastCount > 2, "writers made no progress");
+    }
+}
@@ -0,0 +1,72 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AccountTest {
+    @Test
+    void nonPositiveAmountsMoveNothing() {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        Customer customer = new Customer(1, "Asha");
+        bank.addCustomer(customer);
+        Account current = new CurrentAccount(1, 500);
+        Account plain = new Account(2);
+        customer.addAccount(current);
+        customer.addAccount(plain);
+        current.deposit(1_000);
+        plain.deposit(1_000);
+
+        for (long amount : new long[] {0, -1, -5_000}) {
+            assertFalse(current.withdraw(amount));
+            assertFalse(plain.withdraw(amount));
+            assertFalse(current.transferFunds(plain, amount));
+            assertFalse(plain.transferFunds(current, amount));
+            assertFalse(bank.transfer(1, 2, amount));
+            assertFalse(bank.transfer(2, 1, amount));
+        }
+        assertEquals(1_000, current.getBalance());
+        assertEquals(1_000, plain.getBalance());
+        assertEquals(1, current.getTransactionHistory().size());
+        assertEquals(1, plain.getTransactionHistory().size());
+        assertEquals(2_000, bank.getAggregates().getTotalBalance());
+    }
+
+    @Test
+    void currentAccountWithdrawsIntoOverdraft() {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        Customer customer = new Customer(1, "Asha");
+        bank.addCustomer(customer);
+        Account current = new CurrentAccount(1, 500);
+        customer.addAccount(current);
+        current.deposit(100);
+        assertTrue(current.withdraw(600));
+        assertEquals(-500, current.getBalance());
+        assertFalse(current.withdraw(1));
+    }
+
+    @Test
+    void publishesEveryDepositAndWithdrawal() {
+        Bank bank = new Bank();
+        List<String> events = new ArrayList<>();
+        bank.setEventSink((event, accountNumber, amount) -> events.add(event + " " + accountNumber + " " + amount));
+        Customer customer = new Customer(1, "Asha");
+        bank.addCustomer(customer);
+        Account plain = new Account(1);
+        Account current = new CurrentAccount(2, 500);
+        customer.addAccount(plain);
+        customer.addAccount(current);
+
+        plain.deposit(1_000);
+        assertTrue(plain.withdraw(400));
+        assertFalse(plain.withdraw(601));
+        assertTrue(current.withdraw(300));
+        assertFalse(current.withdraw(201));
+        assertEquals(List.of("DEPOSIT 1 1000", "WITHDRAWAL 1 400", "WITHDRAWAL_DECLINED 1 601",
+                "OVERDRAFT_WITHDRAWAL 2 300", "OVERDRAFT_LIMIT_EXCEEDED 2 201"), events);
+    }
+}
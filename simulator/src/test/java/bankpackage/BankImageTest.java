@@ -0,0 +1,108 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The same round trip as --export-image followed by --image.
+class BankImageTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsBankWithHistory() throws IOException {
+        Bank original = new Bank();
+        original.setEventSink(EventSink.NO_OP);
+        for (int id = 1; id <= 3; id++) {
+            Customer customer = new Customer(id, "Customer " + id);
+            original.addCustomer(customer);
+            SavingsAccount savings = new SavingsAccount(id * 100, new BigDecimal("0.045"));
+            CurrentAccount current = new CurrentAccount(id * 100 + 1, Money.ofRupees(1_000));
+            Account plain = new Account(id * 100 + 2);
+            customer.addAccount(savings);
+            customer.addAccount(current);
+            customer.addAccount(plain);
+            savings.deposit(Money.ofRupees(5_000 * id));
+            savings.setLastAccrualDay(19_000 + id);
+            current.deposit(Money.ofRupees(100));
+            assertTrue(current.withdraw(Money.ofRupees(100 + 250 * id)));
+            plain.deposit(Money.ofRupees(id));
+        }
+        // More than two full history chunks, so some are read straight from the mapping.
+        Account busy = original.findAccount(202);
+        for (int i = 0; i < 2 * TransactionLog.CHUNK_SIZE + 300; i++) {
+            busy.deposit(i + 1);
+        }
+        Path file = directory.resolve("bank.img");
+        BankImage.write(original, file);
+
+        Bank loaded = BankImage.load(file);
+        loaded.setEventSink(EventSink.NO_OP);
+        BankAggregates expected = original.getAggregates();
+        BankAggregates actual = loaded.getAggregates();
+        assertEquals(expected.getTotalBalance(), actual.getTotalBalance());
+        assertEquals(expected.getOverdraftInUse(), actual.getOverdraftInUse());
+        assertEquals(expected.getSavingsAccountCount(), actual.getSavingsAccountCount());
+        assertEquals(expected.getCurrentAccountCount(), actual.getCurrentAccountCount());
+        assertEquals(expected.getOtherAccountCount(), actual.getOtherAccountCount());
+        assertEquals(9, actual.getAccountCount());
+        assertEquals(0, loaded.getImageCustomersLoaded());
+
+        Customer copy = loaded.findCustomerById(2);
+        assertEquals(1, loaded.getImageCustomersLoaded());
+        assertSameCustomer(original.findCustomerById(2), copy);
+        assertSame(copy, loaded.findAccount(202).getOwner());
+        assertEquals(1, loaded.getImageCustomersLoaded());
+
+        // Account 301 is only in the image until customer 3 is built, but it is still taken.
+        Customer newcomer = new Customer(9, "Newcomer");
+        newcomer.addAccount(new Account(301));
+        assertThrows(IllegalArgumentException.class, () -> loaded.addCustomer(newcomer));
+        assertNull(loaded.findCustomerById(9));
+        assertThrows(IllegalArgumentException.class, () -> loaded.addCustomer(new Customer(1, "Impostor")));
+        assertEquals("Customer 1", loaded.findCustomerById(1).getCustomerName());
+        assertEquals(expected.getTotalBalance(), actual.getTotalBalance());
+
+        // Building the rest changes nothing the aggregates already said.
+        assertEquals(3, loaded.getCustomers().size());
+        for (Customer customer : original.getCustomers()) {
+            assertSameCustomer(customer, loaded.findCustomerById(customer.getCustomerId()));
+        }
+        assertEquals(expected.getTotalBalance(), actual.getTotalBalance());
+        assertEquals(9, actual.getAccountCount());
+    }
+
+    private static void assertSameCustomer(Customer expected, Customer actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getCustomerName(), actual.getCustomerName());
+        assertEquals(expected.getAccounts().size(), actual.getAccounts().size());
+        for (Account account : expected.getAccounts()) {
+            Account copy = actual.getAccounts().stream()
+                    .filter(a -> a.getAccountNumber() == account.getAccountNumber()).findFirst().orElse(null);
+            assertNotNull(copy, "account " + account.getAccountNumber());
+            assertEquals(account.getClass(), copy.getClass());
+            assertEquals(account.getBalance(), copy.getBalance());
+            if (account instanceof SavingsAccount) {
+                SavingsAccount savings = (SavingsAccount) account;
+                assertEquals(savings.getInterestRate(), ((SavingsAccount) copy).getInterestRate());
+                assertEquals(savings.getLastAccrualDay(), ((SavingsAccount) copy).getLastAccrualDay());
+            }
+            if (account instanceof CurrentAccount) {
+                assertEquals(((CurrentAccount) account).getOverdraftLimit(),
+                        ((CurrentAccount) copy).getOverdraftLimit());
+            }
+            TransactionLog history = account.getTransactionHistory();
+            TransactionLog restored = copy.getTransactionHistory();
+            assertEquals(history.size(), restored.size());
+            for (int row = 0; row < history.size(); row++) {
+                assertEquals(history.getTimestamp(row), restored.getTimestamp(row));
+                assertEquals(history.getType(row), restored.getType(row));
+                assertEquals(history.getAmount(row), restored.getAmount(row));
+            }
+        }
+    }
+}
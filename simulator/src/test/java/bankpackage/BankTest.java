@@ -0,0 +1,50 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class BankTest {
+    @Test
+    void duplicateCustomerIdIsRejected() {
+        Bank bank = newBank();
+        Customer first = new Customer(7, "Asha");
+        bank.addCustomer(first);
+        first.addAccount(new Account(100));
+
+        Customer duplicate = new Customer(7, "Ravi");
+        duplicate.addAccount(new Account(200));
+        assertThrows(IllegalArgumentException.class, () -> bank.addCustomer(duplicate));
+        assertSame(first, bank.findCustomerById(7));
+        assertEquals(1, bank.getCustomers().size());
+        assertNull(bank.findAccount(200));
+        assertSame(first, bank.findAccount(100).getOwner());
+    }
+
+    @Test
+    void duplicateAccountNumberIsRejected() {
+        Bank bank = newBank();
+        Customer asha = new Customer(1, "Asha");
+        Customer ravi = new Customer(2, "Ravi");
+        bank.addCustomer(asha);
+        bank.addCustomer(ravi);
+        Account account = new Account(100);
+        assertTrue(asha.addAccount(account));
+        assertFalse(ravi.addAccount(new Account(100)));
+        assertTrue(ravi.getAccounts().isEmpty());
+
+        Customer withDuplicate = new Customer(3, "Meera");
+        withDuplicate.addAccount(new Account(300));
+        withDuplicate.addAccount(new Account(100));
+        assertThrows(IllegalArgumentException.class, () -> bank.addCustomer(withDuplicate));
+        assertNull(bank.findCustomerById(3));
+        assertNull(bank.findAccount(300));
+        assertSame(account, bank.findAccount(100));
+    }
+
+    private static Bank newBank() {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        return bank;
+    }
+}
@@ -0,0 +1,23 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class CustomerIndexTest {
+    @Test
+    void putAndGetAcrossResizes() {
+        CustomerIndex index = new CustomerIndex();
+        Customer[] customers = new Customer[10_000];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer(i * 1_024 - 5_000_000, "Customer " + i);
+            assertNull(index.putIfAbsent(customers[i]));
+        }
+        for (int i = 0; i < customers.length; i++) {
+            assertSame(customers[i], index.get(i * 1_024 - 5_000_000));
+            assertSame(customers[i], index.putIfAbsent(new Customer(i * 1_024 - 5_000_000, "Duplicate")));
+        }
+        assertNull(index.get(1));
+        assertNull(index.get(Integer.MIN_VALUE));
+    }
+}
@@ -0,0 +1,103 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryArchiveTest {
+    private static final int CHUNK = TransactionLog.CHUNK_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spilledRowsReadBackThroughEveryQuery() throws IOException {
+        TransactionLog log = new TransactionLog();
+        try (HistoryArchive archive = HistoryArchive.open(directory.resolve("history"), 1)) {
+            log.setArchive(archive, 42);
+            for (int row = 0; row < 5 * CHUNK; row++) {
+                log.append(timestampOf(row), Transaction.DEPOSIT, row + 1);
+            }
+            assertEquals(CHUNK, log.heapRows()); // one full hot chunk; the one being filled is empty
+
+            assertRows(log.between(timestampOf(100), timestampOf(3 * CHUNK)), 100, 3 * CHUNK);
+            assertRows(log.page(500, 1_500), 500, 2_000);
+            assertRows(log.latest(4 * CHUNK + 7), CHUNK - 7, 5 * CHUNK);
+            assertEquals(2 * CHUNK + 1, log.firstRowAtOrAfter(timestampOf(2 * CHUNK) + 1));
+
+            // Closing ends spilling; what was spilled stays readable and new rows stay on the heap.
+            archive.close();
+            for (int row = 5 * CHUNK; row < 8 * CHUNK; row++) {
+                log.append(timestampOf(row), Transaction.DEPOSIT, row + 1);
+            }
+            assertEquals(4 * CHUNK, log.heapRows());
+            assertRows(log.page(0, Integer.MAX_VALUE), 0, 8 * CHUNK);
+        }
+    }
+
+    @Test
+    void recoversHistoryThatWasSpilled() throws IOException {
+        try (BankStore store = BankStore.open(directory.resolve("live"));
+             HistoryArchive archive = HistoryArchive.open(directory.resolve("history"), 1)) {
+            Bank bank = store.getBank();
+            bank.setEventSink(EventSink.NO_OP);
+            bank.setHistoryArchive(archive);
+            Customer customer = new Customer(1, "Asha");
+            bank.addCustomer(customer);
+            Account account = new Account(100);
+            customer.addAccount(account);
+            for (int i = 0; i < 3 * CHUNK + 5; i++) {
+                account.deposit(i + 1);
+            }
+            assertTrue(account.getTransactionHistory().heapRows() <= 2 * CHUNK);
+
+            store.getBank().getJournal().sync();
+            Path crashed = Files.createDirectories(directory.resolve("crashed"));
+            try (Stream<Path> files = Files.list(directory.resolve("live"))) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.copy(file, crashed.resolve(file.getFileName()));
+                }
+            }
+            try (BankStore recovered = BankStore.open(crashed);
+                 HistoryArchive reopened = HistoryArchive.open(directory.resolve("history-recovered"), 1)) {
+                Account copy = recovered.getBank().findAccount(100);
+                assertSameHistory(account.getTransactionHistory(), copy.getTransactionHistory());
+                assertEquals(account.getBalance(), copy.getBalance());
+
+                recovered.getBank().setHistoryArchive(reopened);
+                assertTrue(copy.getTransactionHistory().heapRows() <= 2 * CHUNK);
+                assertSameHistory(account.getTransactionHistory(), copy.getTransactionHistory());
+            }
+        }
+    }
+
+    private static long timestampOf(int row) {
+        return 1_000 + row * 10L;
+    }
+
+    // Rows [from, to) exactly, as appended above.
+    private static void assertRows(TransactionLog.Slice slice, int from, int to) {
+        assertEquals(from, slice.getFromRow());
+        assertEquals(to, slice.getToRow());
+        int row = from;
+        for (Transaction transaction : slice) {
+            assertEquals(timestampOf(row), transaction.getTimestamp(), "timestamp of row " + row);
+            assertEquals(row + 1, transaction.getAmount(), "amount of row " + row);
+            row++;
+        }
+        assertEquals(to, row);
+    }
+
+    private static void assertSameHistory(TransactionLog expected, TransactionLog actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.getTimestamp(row), actual.getTimestamp(row));
+            assertEquals(expected.getType(row), actual.getType(row));
+            assertEquals(expected.getAmount(row), actual.getAmount(row));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Recovery after an unclean stop: the store is never closed, so nothing is checkpointed on the way
+// out. Copying the directory once the journal is synced gives the files a crashed process leaves.
+class JournalRecoveryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysJournalAfterUncleanStop() throws IOException {
+        try (BankStore store = open("live")) {
+            Bank bank = store.getBank();
+            bank.setEventSink(EventSink.NO_OP);
+            Customer customer = new Customer(1, "Asha");
+            bank.addCustomer(customer);
+            Account savings = new SavingsAccount(100, new BigDecimal("0.04"));
+            Account current = new CurrentAccount(200, Money.ofRupees(1_000));
+            customer.addAccount(savings);
+            customer.addAccount(current);
+            savings.deposit(Money.ofRupees(5_000));
+            current.deposit(Money.ofRupees(250));
+            assertTrue(current.withdraw(Money.ofRupees(900)));
+            assertTrue(savings.transferFunds(current, Money.ofRupees(1_200)));
+            assertFalse(savings.withdraw(Money.ofRupees(10_000)));
+
+            // Opened with money and history before it joined the bank.
+            Account funded = new Account(300);
+            funded.deposit(Money.ofRupees(500));
+            funded.deposit(Money.ofRupees(20));
+            Customer other = new Customer(2, "Ravi");
+            other.addAccount(funded);
+            bank.addCustomer(other);
+            funded.deposit(Money.ofRupees(7));
+
+            Bank recovered = crashAndRecover(store);
+            assertSameState(bank, recovered);
+            assertEquals(Money.ofRupees(527), recovered.findAccount(300).getBalance());
+            assertEquals(3, recovered.findAccount(300).getTransactionHistory().size());
+        }
+    }
+
+    @Test
+    void replaysJournalTailOnTopOfCheckpoint() throws IOException {
+        try (BankStore store = open("live")) {
+            Bank bank = store.getBank();
+            bank.setEventSink(EventSink.NO_OP);
+            Customer customer = new Customer(1, "Asha");
+            bank.addCustomer(customer);
+            Account source = new Account(100);
+            Account target = new Account(200);
+            customer.addAccount(source);
+            customer.addAccount(target);
+            source.deposit(Money.ofRupees(1_000));
+            store.checkpoint();
+
+            assertTrue(source.transferFunds(target, Money.ofRupees(300)));
+            Account late = new Account(300);
+            customer.addAccount(late);
+            late.deposit(Money.ofRupees(40));
+            customer.deleteAccount(200);
+
+            Bank recovered = crashAndRecover(store);
+            assertSameState(bank, recovered);
+            assertNull(recovered.findAccount(200));
+        }
+    }
+
+    @Test
+    void overlongNameIsRejectedBeforeAnythingChanges() throws IOException {
+        try (BankStore store = open("live")) {
+            Bank bank = store.getBank();
+            bank.setEventSink(EventSink.NO_OP);
+            Customer customer = new Customer(1, "A".repeat(Bank.MAX_CUSTOMER_NAME_LENGTH + 1));
+            customer.addAccount(new Account(100));
+            assertThrows(IllegalArgumentException.class, () -> bank.addCustomer(customer));
+            assertNull(bank.findCustomerById(1));
+            assertNull(bank.findAccount(100));
+
+            Customer fits = new Customer(1, "\u0905".repeat(Bank.MAX_CUSTOMER_NAME_LENGTH));
+            bank.addCustomer(fits);
+            fits.addAccount(new Account(100));
+            store.checkpoint();
+            bank.findAccount(100).deposit(Money.ofRupees(10));
+
+            Bank recovered = crashAndRecover(store);
+            assertSameState(bank, recovered);
+        }
+    }
+
+    @Test
+    void dropsTornTailAndKeepsLogging() throws IOException {
+        try (BankStore store = open("live")) {
+            Bank bank = store.getBank();
+            bank.setEventSink(EventSink.NO_OP);
+            Customer customer = new Customer(1, "Asha");
+            bank.addCustomer(customer);
+            Account account = new Account(100);
+            customer.addAccount(account);
+            account.deposit(Money.ofRupees(100));
+            Path crashed = crash(store);
+            try (Stream<Path> files = Files.list(crashed)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().startsWith("journal-")) {
+                        // Half a frame, as a crash in the middle of a write leaves it.
+                        Files.write(file, new byte[] {40, 0, 0, 0, 1, 2}, StandardOpenOption.APPEND);
+                    }
+                }
+            }
+
+            try (BankStore reopened = open("crashed")) {
+                Bank recovered = reopened.getBank();
+                recovered.setEventSink(EventSink.NO_OP);
+                assertSameState(bank, recovered);
+                recovered.findAccount(100).deposit(Money.ofRupees(5));
+            }
+            try (BankStore reopened = open("crashed")) {
+                Account recovered = reopened.getBank().findAccount(100);
+                assertEquals(Money.ofRupees(105), recovered.getBalance());
+                assertEquals(2, recovered.getTransactionHistory().size());
+            }
+        }
+    }
+
+    @Test
+    void fullBatchIsWrittenWithoutWaitingForTheInterval() throws IOException, InterruptedException {
+        try (BankStore store = BankStore.open(directory.resolve("live"), 8, TimeUnit.HOURS.toMillis(1),
+                BankStore.DEFAULT_CHECKPOINT_EVERY_RECORDS)) {
+            Bank bank = store.getBank();
+            bank.setEventSink(EventSink.NO_OP);
+            Customer customer = new Customer(1, "Asha");
+            bank.addCustomer(customer);
+            Account account = new Account(100);
+            customer.addAccount(account);
+            for (int i = 0; i < 6; i++) {
+                account.deposit(Money.ofRupees(1));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (journalBytes(directory.resolve("live")) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(journalBytes(directory.resolve("live")) > 0);
+        }
+    }
+
+    private static long journalBytes(Path store) throws IOException {
+        long bytes = 0;
+        try (Stream<Path> files = Files.list(store)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().startsWith("journal-")) {
+                    bytes += Files.size(file);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private BankStore open(String name) throws IOException {
+        return BankStore.open(directory.resolve(name));
+    }
+
+    private Path crash(BankStore store) throws IOException {
+        store.getBank().getJournal().sync();
+        Path live = directory.resolve("live");
+        Path crashed = Files.createDirectories(directory.resolve("crashed"));
+        try (Stream<Path> files = Files.list(live)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, crashed.resolve(file.getFileName()));
+            }
+        }
+        return crashed;
+    }
+
+    private Bank crashAndRecover(BankStore store) throws IOException {
+        crash(store);
+        BankStore recovered = open("crashed");
+        recovered.close();
+        return recovered.getBank();
+    }
+
+    private static void assertSameState(Bank expected, Bank actual) {
+        int accounts = 0;
+        for (Customer customer : expected.getCustomers()) {
+            Customer copy = actual.findCustomerById(customer.getCustomerId());
+            assertNotNull(copy, "customer " + customer.getCustomerId());
+            assertEquals(customer.getCustomerName(), copy.getCustomerName());
+            for (Account account : customer.getAccounts()) {
+                Account restored = actual.findAccount(account.getAccountNumber());
+                assertNotNull(restored, "account " + account.getAccountNumber());
+                assertEquals(account.getClass(), restored.getClass());
+                assertEquals(account.getBalance(), restored.getBalance(), "balance of " + account.getAccountNumber());
+                TransactionLog history = account.getTransactionHistory();
+                TransactionLog restoredHistory = restored.getTransactionHistory();
+                assertEquals(history.size(), restoredHistory.size());
+                for (int row = 0; row < history.size(); row++) {
+                    assertEquals(history.getAmount(row), restoredHistory.getAmount(row));
+                    assertEquals(history.getType(row), restoredHistory.getType(row));
+                }
+                accounts++;
+            }
+        }
+        assertEquals(accounts, actual.getCustomers().stream().mapToInt(c -> c.getAccounts().size()).sum());
+        assertEquals(expected.getAggregates().getTotalBalance(), actual.getAggregates().getTotalBalance());
+    }
+}
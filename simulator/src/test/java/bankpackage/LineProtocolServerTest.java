@@ -0,0 +1,93 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class LineProtocolServerTest {
+    @Test
+    void answersPipelinedRequestsInOrder() throws IOException {
+        try (EchoServer server = new EchoServer(); Socket socket = connect(server)) {
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            BufferedReader in = reader(socket);
+            StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < 5_000; i++) {
+                requests.append("req ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+            }
+            requests.append("x".repeat(20_000)).append('\n'); // longer than one read buffer
+            requests.append("नमस्ते\n");
+            out.write(requests.toString());
+            out.flush();
+            for (int i = 0; i < 5_000; i++) {
+                assertEquals("ECHO req " + i, in.readLine());
+            }
+            assertEquals("ECHO " + "x".repeat(20_000), in.readLine());
+            assertEquals("ECHO नमस्ते", in.readLine());
+            out.write("fail\n");
+            out.flush();
+            assertTrue(in.readLine().startsWith("ERR "));
+            assertEquals(5_003, server.getLatency().getCount());
+        }
+    }
+
+    @Test
+    void closeDisconnectsClients() throws IOException {
+        EchoServer server = new EchoServer();
+        try (Socket first = connect(server); Socket second = connect(server)) {
+            BufferedReader in = reader(first);
+            first.getOutputStream().write("hello\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals("ECHO hello", in.readLine());
+            second.getOutputStream().write("hi\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals("ECHO hi", reader(second).readLine());
+
+            server.close();
+            assertNull(in.readLine());
+            assertEquals(-1, second.getInputStream().read());
+        }
+    }
+
+    @Test
+    void overlongLineIsRefused() throws IOException {
+        try (EchoServer server = new EchoServer(); Socket socket = connect(server)) {
+            OutputStream out = socket.getOutputStream();
+            byte[] chunk = "y".repeat(4096).getBytes(StandardCharsets.UTF_8);
+            BufferedReader in = reader(socket);
+            // Exactly enough to fill the server's largest buffer with no newline in sight.
+            for (int written = 0; written < LineProtocolServer.MAX_LINE_LENGTH; written += chunk.length) {
+                out.write(chunk);
+            }
+            out.flush();
+            assertTrue(in.readLine().startsWith("ERR request line longer than"));
+            assertNull(in.readLine());
+        }
+    }
+
+    private static Socket connect(EchoServer server) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static final class EchoServer extends LineProtocolServer {
+        EchoServer() throws IOException {
+            super(0, "echo");
+            start();
+        }
+
+        @Override
+        protected String handle(String request) {
+            if (request.equals("fail")) {
+                throw new IllegalStateException("failed");
+            }
+            return "ECHO " + request;
+        }
+    }
+}
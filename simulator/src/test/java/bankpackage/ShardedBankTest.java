@@ -0,0 +1,251 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class ShardedBankTest {
+    @Test
+    void crossShardTransfersConserveMoney() {
+        try (ShardedBank bank = ShardedBank.local(4)) {
+            for (int i = 0; i < 64; i++) {
+                assertTrue(bank.openCurrentAccount(i, "Customer " + i, 1_000 + i, Money.ofRupees(100)));
+                assertTrue(bank.deposit(1_000 + i, Money.ofRupees(500)));
+            }
+            long total = bank.getTotalBalance();
+            SplittableRandom random = new SplittableRandom(3);
+            int crossShard = 0;
+            for (int i = 0; i < 5_000; i++) {
+                long source = 1_000 + random.nextInt(64);
+                long target = 1_000 + random.nextInt(64);
+                if (bank.shardFor(source) != bank.shardFor(target)) {
+                    crossShard++;
+                }
+                bank.transfer(source, target, Money.ofRupees(1 + random.nextInt(700)));
+            }
+            assertTrue(crossShard > 0);
+            assertEquals(total, bank.getTotalBalance());
+            assertEquals(0, bank.getPendingTransfers());
+            assertEquals(0, bank.getInDoubtTransfers());
+        }
+    }
+
+    @Test
+    void retriedCreditIsAppliedOnce() {
+        LocalShard shard = newShard(1, 2);
+        assertTrue(shard.credit(7, 1, 300));
+        assertTrue(shard.credit(7, 1, 300));
+        assertEquals(300, shard.getBalance(1));
+        assertEquals(0, shard.getTotalBalance()); // not counted until committed
+
+        // Same id with different details is another transfer, not a retry.
+        assertFalse(shard.credit(7, 2, 300));
+        assertFalse(shard.credit(7, 1, 301));
+
+        shard.commitCredit(7);
+        assertTrue(shard.credit(7, 1, 300)); // arrives after the commit
+        assertEquals(300, shard.getBalance(1));
+        assertEquals(300, shard.getTotalBalance());
+        assertEquals(0, shard.getPendingTransfers());
+    }
+
+    @Test
+    void abortBeforePrepareRefusesThePrepare() {
+        LocalShard shard = newShard(1);
+        shard.deposit(1, 1_000);
+        shard.abortDebit(9);
+        assertFalse(shard.prepareDebit(9, 1, 400));
+        assertEquals(1_000, shard.getBalance(1));
+        assertEquals(0, shard.getPendingTransfers());
+
+        // A prepare repeated after its transfer committed takes nothing either.
+        assertTrue(shard.prepareDebit(10, 1, 400));
+        shard.commitDebit(10);
+        assertFalse(shard.prepareDebit(10, 1, 400));
+        assertEquals(600, shard.getBalance(1));
+    }
+
+    @Test
+    void inDoubtTransferResolvesOnceShardIsBack() {
+        try (ShardedBank bank = new ShardedBank(1, new FlakyShard(newShard()), new FlakyShard(newShard()))) {
+            long[] accounts = accountsOnDifferentShards(bank);
+            assertTrue(bank.openCurrentAccount(1, "Asha", accounts[0], 0));
+            assertTrue(bank.openCurrentAccount(2, "Ravi", accounts[1], 0));
+            assertTrue(bank.deposit(accounts[0], 1_000));
+            long total = bank.getTotalBalance();
+
+            FlakyShard down = (FlakyShard) bank.shardFor(accounts[1]);
+            down.failure = new UncheckedIOException(new IOException("connection reset"));
+            assertFalse(bank.transfer(accounts[0], accounts[1], 250));
+            assertEquals(1, bank.getInDoubtTransfers());
+            assertEquals(1, bank.resolveInDoubt());
+
+            // A protocol failure parks the transfer the same way instead of leaking its hold.
+            down.failure = new IllegalStateException("Shard rejected 'CREDIT': ERR");
+            assertFalse(bank.transfer(accounts[0], accounts[1], 100));
+            assertEquals(2, bank.getInDoubtTransfers());
+
+            down.failure = null;
+            assertEquals(total, bank.getTotalBalance());
+            assertEquals(0, bank.resolveInDoubt());
+            assertEquals(650, bank.getBalance(accounts[0]));
+            assertEquals(350, bank.getBalance(accounts[1]));
+            assertEquals(total, bank.getTotalBalance());
+            assertEquals(0, bank.getPendingTransfers());
+        }
+    }
+
+    @Test
+    void remoteShardServesCrossShardTransfers() throws IOException {
+        LocalShard local = newShard();
+        LocalShard served = newShard();
+        try (ShardServer server = new ShardServer(served, 0)) {
+            server.start();
+            try (ShardedBank bank = new ShardedBank(2, local, new RemoteShard(server.getPort(), 2))) {
+                long[] accounts = accountsOnDifferentShards(bank);
+                assertTrue(bank.openSavingsAccount(1, "Asha Rao", accounts[0], new BigDecimal("0.04")));
+                assertTrue(bank.openSavingsAccount(2, "Ravi Kumar", accounts[1], new BigDecimal("0.04")));
+                assertTrue(bank.deposit(accounts[0], 900));
+                assertTrue(bank.transfer(accounts[0], accounts[1], 400));
+                assertFalse(bank.transfer(accounts[1], accounts[0], 401));
+                assertFalse(bank.transfer(accounts[0], accounts[1], -5));
+                assertEquals(500, bank.getBalance(accounts[0]));
+                assertEquals(400, bank.getBalance(accounts[1]));
+                assertEquals(900, bank.getTotalBalance());
+                assertEquals(0, bank.getPendingTransfers());
+
+                long remoteAccount = bank.shardFor(accounts[0]) == local ? accounts[1] : accounts[0];
+                Shard remote = bank.shardFor(remoteAccount);
+                assertThrows(IllegalArgumentException.class,
+                        () -> remote.openCurrentAccount(3, "Eve\nDEPOSIT " + remoteAccount + " 100000", 77, 0));
+                assertEquals(Shard.NO_ACCOUNT, remote.getBalance(77));
+                assertEquals(900, bank.getTotalBalance());
+            }
+        }
+    }
+
+    private static LocalShard newShard(long... accountNumbers) {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        LocalShard shard = new LocalShard(bank);
+        for (long accountNumber : accountNumbers) {
+            assertTrue(shard.openCurrentAccount((int) accountNumber, "Customer " + accountNumber, accountNumber, 0));
+        }
+        return shard;
+    }
+
+    // Two account numbers that land on different shards.
+    private static long[] accountsOnDifferentShards(ShardedBank bank) {
+        long first = 100;
+        for (long second = first + 1; ; second++) {
+            if (bank.shardIndexFor(second) != bank.shardIndexFor(first)) {
+                return new long[] {first, second};
+            }
+        }
+    }
+
+    // Fails every call with failure while it is set, as a RemoteShard does when its server is down or
+    // rejects a request.
+    private static final class FlakyShard implements Shard {
+        private final Shard shard;
+        volatile RuntimeException failure;
+
+        FlakyShard(Shard shard) {
+            this.shard = shard;
+        }
+
+        private void check() {
+            RuntimeException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public boolean openSavingsAccount(int customerId, String customerName, long accountNumber,
+                                          BigDecimal interestRate) {
+            check();
+            return shard.openSavingsAccount(customerId, customerName, accountNumber, interestRate);
+        }
+
+        @Override
+        public boolean openCurrentAccount(int customerId, String customerName, long accountNumber,
+                                          long overdraftLimit) {
+            check();
+            return shard.openCurrentAccount(customerId, customerName, accountNumber, overdraftLimit);
+        }
+
+        @Override
+        public boolean deposit(long accountNumber, long amount) {
+            check();
+            return shard.deposit(accountNumber, amount);
+        }
+
+        @Override
+        public boolean withdraw(long accountNumber, long amount) {
+            check();
+            return shard.withdraw(accountNumber, amount);
+        }
+
+        @Override
+        public boolean transfer(long sourceAccountNumber, long targetAccountNumber, long amount) {
+            check();
+            return shard.transfer(sourceAccountNumber, targetAccountNumber, amount);
+        }
+
+        @Override
+        public long getBalance(long accountNumber) {
+            check();
+            return shard.getBalance(accountNumber);
+        }
+
+        @Override
+        public boolean prepareDebit(long transferId, long accountNumber, long amount) {
+            check();
+            return shard.prepareDebit(transferId, accountNumber, amount);
+        }
+
+        @Override
+        public boolean credit(long transferId, long accountNumber, long amount) {
+            check();
+            return shard.credit(transferId, accountNumber, amount);
+        }
+
+        @Override
+        public void commitDebit(long transferId) {
+            check();
+            shard.commitDebit(transferId);
+        }
+
+        @Override
+        public void abortDebit(long transferId) {
+            check();
+            shard.abortDebit(transferId);
+        }
+
+        @Override
+        public void commitCredit(long transferId) {
+            check();
+            shard.commitCredit(transferId);
+        }
+
+        @Override
+        public long getTotalBalance() {
+            return shard.getTotalBalance();
+        }
+
+        @Override
+        public int getPendingTransfers() {
+            return shard.getPendingTransfers();
+        }
+
+        @Override
+        public void close() {
+            shard.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package bankpackage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class TransferBatcherTest {
+    private static final int ACCOUNTS = 40;
+
+    @Test
+    void matchesSequentialTransfers() throws Exception {
+        Bank batched = newBank();
+        Bank sequential = newBank();
+        SplittableRandom random = new SplittableRandom(7);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        List<Boolean> expected = new ArrayList<>();
+        try (TransferBatcher batcher = new TransferBatcher(batched, 64, 1, TimeUnit.MILLISECONDS)) {
+            for (int i = 0; i < 5_000; i++) {
+                // A few numbers past the last account, so some transfers name an account that does not exist.
+                long source = 1 + random.nextInt(ACCOUNTS + 2);
+                long target = 1 + random.nextInt(ACCOUNTS + 2);
+                long amount = Money.ofRupees(1 + random.nextInt(1_500));
+                results.add(batcher.submit(source, target, amount));
+                expected.add(sequential.transfer(source, target, amount));
+            }
+        }
+        int accepted = 0;
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(expected.get(i), results.get(i).get(), "transfer " + i);
+            accepted += expected.get(i) ? 1 : 0;
+        }
+        assertTrue(accepted > 0 && accepted < results.size());
+        for (long number = 1; number <= ACCOUNTS; number++) {
+            Account account = batched.findAccount(number);
+            Account reference = sequential.findAccount(number);
+            assertEquals(reference.getBalance(), account.getBalance(), "balance of " + number);
+            TransactionLog history = account.getTransactionHistory();
+            TransactionLog referenceHistory = reference.getTransactionHistory();
+            assertEquals(referenceHistory.size(), history.size());
+            for (int row = 0; row < history.size(); row++) {
+                assertEquals(referenceHistory.getAmount(row), history.getAmount(row));
+                assertEquals(referenceHistory.getType(row), history.getType(row));
+            }
+        }
+        assertEquals(sequential.getAggregates().getTotalBalance(), batched.getAggregates().getTotalBalance());
+        assertEquals(sequential.getAggregates().getOverdraftInUse(), batched.getAggregates().getOverdraftInUse());
+    }
+
+    @Test
+    void failureKeepsOutcomesDecidedBeforeIt() throws Exception {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        Customer customer = new Customer(1, "Asha");
+        bank.addCustomer(customer);
+        Account source = new Account(1) {
+            @Override
+            boolean canWithdraw(long balance, long amount) {
+                if (amount == 13) {
+                    throw new IllegalStateException("injected");
+                }
+                return super.canWithdraw(balance, amount);
+            }
+        };
+        Account target = new Account(2);
+        customer.addAccount(source);
+        customer.addAccount(target);
+        source.deposit(100);
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        try (TransferBatcher batcher = new TransferBatcher(bank, 16, 50, TimeUnit.MILLISECONDS)) {
+            results.add(batcher.submit(1, 2, 5));
+            results.add(batcher.submit(1, 2, 500));
+            results.add(batcher.submit(1, 2, 13));
+            results.add(batcher.submit(1, 2, 7));
+            assertTrue(results.get(0).get());
+            assertFalse(results.get(1).get());
+            for (CompletableFuture<Boolean> failed : results.subList(2, 4)) {
+                ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+                assertEquals("injected", e.getCause().getMessage());
+            }
+            assertEquals(95, source.getBalance());
+            assertEquals(5, target.getBalance());
+            assertEquals(100, bank.getAggregates().getTotalBalance());
+
+            // The worker carries on with the next batch.
+            assertTrue(batcher.submit(1, 2, 1).get());
+            assertEquals(94, source.getBalance());
+        }
+    }
+
+    @Test
+    void nonPositiveAmountsAreDeclined() throws Exception {
+        Bank bank = newBank();
+        try (TransferBatcher batcher = new TransferBatcher(bank)) {
+            assertFalse(batcher.submit(1, 2, 0).get());
+            assertFalse(batcher.submit(3, 2, -Money.ofRupees(50)).get());
+        }
+        assertEquals(Money.ofRupees(100), bank.findAccount(1).getBalance());
+        assertEquals(Money.ofRupees(200), bank.findAccount(2).getBalance());
+        assertEquals(Money.ofRupees(300), bank.findAccount(3).getBalance());
+    }
+
+    @Test
+    void errorFailsWaitingTransfersInsteadOfHangingThem() throws Exception {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        Customer customer = new Customer(1, "Asha");
+        bank.addCustomer(customer);
+        Account source = new Account(1) {
+            @Override
+            boolean canWithdraw(long balance, long amount) {
+                if (amount == 13) {
+                    throw new AssertionError("injected");
+                }
+                return super.canWithdraw(balance, amount);
+            }
+        };
+        customer.addAccount(source);
+        customer.addAccount(new Account(2));
+        source.deposit(100);
+
+        try (TransferBatcher batcher = new TransferBatcher(bank, 16, 50, TimeUnit.MILLISECONDS)) {
+            CompletableFuture<Boolean> before = batcher.submit(1, 2, 5);
+            CompletableFuture<Boolean> failing = batcher.submit(1, 2, 13);
+            assertTrue(before.get(10, TimeUnit.SECONDS));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+            assertEquals("injected", e.getCause().getMessage());
+            e = assertThrows(ExecutionException.class, () -> batcher.submit(1, 2, 1).get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertEquals(95, source.getBalance());
+    }
+
+    // Savings, plain and current accounts (some with an overdraft) with varied opening balances.
+    private static Bank newBank() {
+        Bank bank = new Bank();
+        bank.setEventSink(EventSink.NO_OP);
+        Customer customer = new Customer(1, "Asha");
+        bank.addCustomer(customer);
+        for (long number = 1; number <= ACCOUNTS; number++) {
+            Account account;
+            if (number % 3 == 0) {
+                account = new CurrentAccount(number, Money.ofRupees(500 * (number % 4)));
+            } else if (number % 3 == 1) {
+                account = new SavingsAccount(number, new BigDecimal("0.04"));
+            } else {
+                account = new Account(number);
+            }
+            customer.addAccount(account);
+            account.deposit(Money.ofRupees(100 * number));
+        }
+        return bank;
+    }
+}